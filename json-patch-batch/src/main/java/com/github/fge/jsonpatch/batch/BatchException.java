@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.batch;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Exception thrown when one or more tasks of a batch fail
+ *
+ * <p>The failures are available by task index using {@link #getFailures()};
+ * they are also attached to this exception as {@link #getSuppressed()
+ * suppressed exceptions}, in task order. A task which did not complete in
+ * time fails with a {@link java.util.concurrent.TimeoutException}.</p>
+ *
+ * @see BatchExecutor
+ */
+public final class BatchException
+    extends Exception
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int taskCount;
+    private final SortedMap<Integer, Throwable> failures;
+
+    BatchException(final int taskCount,
+        final SortedMap<Integer, Throwable> failures)
+    {
+        super(failures.size() + " of " + taskCount + " tasks failed; first"
+            + " failure (task " + failures.firstKey() + "): "
+            + failures.get(failures.firstKey()));
+        this.taskCount = taskCount;
+        this.failures = Collections.unmodifiableSortedMap(
+            new TreeMap<>(failures));
+        for (final Throwable failure: failures.values())
+            addSuppressed(failure);
+    }
+
+    /**
+     * Return the number of tasks in the batch
+     *
+     * @return the number of tasks
+     */
+    public int getTaskCount()
+    {
+        return taskCount;
+    }
+
+    /**
+     * Return the failures of this batch
+     *
+     * @return an unmodifiable map of failures, by task index
+     */
+    public SortedMap<Integer, Throwable> getFailures()
+    {
+        return failures;
+    }
+}
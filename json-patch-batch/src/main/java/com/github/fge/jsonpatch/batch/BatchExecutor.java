@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.Patch;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Run batches of patch and diff computations concurrently
+ *
+ * <p>By default, each task of a batch runs on its own virtual thread; this
+ * makes it possible to mix tasks blocking on I/O (for instance, fetching the
+ * documents to patch) with CPU bound tasks, such as diffs of large
+ * documents, without sizing a thread pool.</p>
+ *
+ * <p>A batch method returns once each task of the batch has either
+ * completed, or been cancelled because it did not complete in time. Each
+ * task has the same timeout, starting from the moment it is submitted.
+ * Failures do not cancel the other tasks of the batch; they are all
+ * collected, and reported together by a {@link BatchException}. If the
+ * calling thread is interrupted while waiting, all tasks of the batch are
+ * cancelled.</p>
+ *
+ * <p>Batches are not structured, however: cancelling a task only interrupts
+ * the thread running it, and the batch method does not wait for cancelled
+ * tasks to terminate. Patch and diff computations do not check for
+ * interruption, so a cancelled computation may still be running in the
+ * background after the batch method has returned. Closing a batch executor
+ * obtained from {@link #create()} waits for all tasks to terminate.</p>
+ *
+ * <p>Instances of this class are thread safe.</p>
+ */
+public final class BatchExecutor
+    implements AutoCloseable
+{
+    private final ExecutorService executor;
+    private final boolean owned;
+
+    private BatchExecutor(final ExecutorService executor, final boolean owned)
+    {
+        this.executor = executor;
+        this.owned = owned;
+    }
+
+    /**
+     * Create a batch executor running each task on a new virtual thread
+     *
+     * @return a new batch executor
+     */
+    public static BatchExecutor create()
+    {
+        return new BatchExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+            true);
+    }
+
+    /**
+     * Create a batch executor running tasks on an existing executor service
+     *
+     * <p>Closing the batch executor does not shut down this executor
+     * service.</p>
+     *
+     * @param executor the executor service
+     * @return a new batch executor
+     */
+    public static BatchExecutor using(final ExecutorService executor)
+    {
+        return new BatchExecutor(Objects.requireNonNull(executor, "executor"),
+            false);
+    }
+
+    /**
+     * Apply a patch to a list of values
+     *
+     * @param patch the patch
+     * @param values the values to patch; they are not modified
+     * @param timeout the timeout of each application
+     * @return the patched values, in the order of the input values
+     * @throws BatchException the patch could not be applied to one or more
+     * values, or one or more applications did not complete in time
+     * @throws InterruptedException interrupted while waiting
+     */
+    public List<JsonNode> apply(final Patch patch,
+        final List<? extends JsonNode> values, final Duration timeout)
+        throws BatchException, InterruptedException
+    {
+        Objects.requireNonNull(patch, "patch");
+
+        final List<Callable<JsonNode>> tasks = new ArrayList<>(values.size());
+
+        for (final JsonNode value: values) {
+            Objects.requireNonNull(value, "value");
+            tasks.add(() -> patch.apply(value));
+        }
+
+        return invokeAll(tasks, timeout);
+    }
+
+    /**
+     * Compute JSON Patches between pairs of values
+     *
+     * @param sources the source values
+     * @param targets the target values
+     * @param timeout the timeout of each diff
+     * @return the patches, in the order of the input values
+     * @throws BatchException one or more diffs did not complete in time, or
+     * failed
+     * @throws InterruptedException interrupted while waiting
+     * @throws IllegalArgumentException lists do not have the same size
+     * @see JsonDiff#asJsonPatch(JsonNode, JsonNode)
+     */
+    public List<JsonPatch> diff(final List<? extends JsonNode> sources,
+        final List<? extends JsonNode> targets, final Duration timeout)
+        throws BatchException, InterruptedException
+    {
+        final int size = sources.size();
+        if (targets.size() != size)
+            throw new IllegalArgumentException("sources and targets do not"
+                + " have the same size");
+
+        final List<Callable<JsonPatch>> tasks = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            final JsonNode source = Objects.requireNonNull(sources.get(i),
+                "source");
+            final JsonNode target = Objects.requireNonNull(targets.get(i),
+                "target");
+            tasks.add(() -> JsonDiff.asJsonPatch(source, target));
+        }
+
+        return invokeAll(tasks, timeout);
+    }
+
+    /**
+     * Run a batch of arbitrary tasks
+     *
+     * @param tasks the tasks
+     * @param timeout the timeout of each task
+     * @param <T> the type of results
+     * @return the results, in the order of tasks
+     * @throws BatchException one or more tasks failed or did not complete in
+     * time
+     * @throws InterruptedException interrupted while waiting
+     * @throws IllegalArgumentException timeout is not strictly positive
+     * @throws java.util.concurrent.RejectedExecutionException the executor
+     * refused a task; already submitted tasks are cancelled
+     */
+    public <T> List<T> invokeAll(
+        final List<? extends Callable<? extends T>> tasks,
+        final Duration timeout)
+        throws BatchException, InterruptedException
+    {
+        if (timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException("timeout must be strictly"
+                + " positive");
+
+        final int size = tasks.size();
+        final long nanos = timeout.toNanos();
+        final long[] deadlines = new long[size];
+        final List<Future<? extends T>> futures = new ArrayList<>(size);
+
+        try {
+            for (final Callable<? extends T> task: tasks) {
+                Objects.requireNonNull(task, "task");
+                deadlines[futures.size()] = System.nanoTime() + nanos;
+                futures.add(executor.submit(task));
+            }
+            return collect(futures, deadlines, timeout);
+        } catch (InterruptedException | RuntimeException | Error e) {
+            for (final Future<? extends T> future: futures)
+                future.cancel(true);
+            throw e;
+        }
+    }
+
+    private static <T> List<T> collect(
+        final List<Future<? extends T>> futures, final long[] deadlines,
+        final Duration timeout)
+        throws BatchException, InterruptedException
+    {
+        final int size = futures.size();
+        final List<T> results = new ArrayList<>(size);
+        final SortedMap<Integer, Throwable> failures = new TreeMap<>();
+
+        Future<? extends T> future;
+        T result;
+
+        for (int i = 0; i < size; i++) {
+            future = futures.get(i);
+            result = null;
+            try {
+                result = future.get(deadlines[i] - System.nanoTime(),
+                    TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                failures.put(i, e.getCause());
+            } catch (CancellationException e) {
+                failures.put(i, e);
+            } catch (TimeoutException ignored) {
+                future.cancel(true);
+                failures.put(i, new TimeoutException("task " + i
+                    + " did not complete within " + timeout));
+            }
+            results.add(result);
+        }
+
+        if (!failures.isEmpty())
+            throw new BatchException(size, failures);
+
+        return results;
+    }
+
+    /**
+     * Close this batch executor
+     *
+     * <p>If this batch executor was created using {@link #create()}, this
+     * waits for tasks still running (cancelled or not) to terminate.</p>
+     */
+    @Override
+    public void close()
+    {
+        if (owned)
+            executor.close();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static org.testng.Assert.*;
+
+public final class BatchExecutorTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10L);
+
+    private static JsonNode read(final String input)
+        throws IOException
+    {
+        return JacksonUtils.getReader().readTree(input);
+    }
+
+    @Test
+    public void patchesAreAppliedToAllValuesInOrder()
+        throws IOException, BatchException, InterruptedException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(
+            "[{\"op\":\"add\",\"path\":\"/b\",\"value\":2}]");
+        final List<JsonNode> values = List.of(read("{\"a\":1}"),
+            read("{\"a\":3}"), read("{}"));
+
+        try (final BatchExecutor executor = BatchExecutor.create()) {
+            assertEquals(executor.apply(patch, values, TIMEOUT), List.of(
+                read("{\"a\":1,\"b\":2}"), read("{\"a\":3,\"b\":2}"),
+                read("{\"b\":2}")));
+        }
+
+        assertEquals(values.get(2), read("{}"));
+    }
+
+    @Test
+    public void diffsAreComputedPairwise()
+        throws IOException, BatchException, InterruptedException
+    {
+        final List<JsonNode> sources = List.of(read("[1,2]"), read("{}"));
+        final List<JsonNode> targets = List.of(read("[2]"),
+            read("{\"a\":null}"));
+
+        try (final BatchExecutor executor = BatchExecutor.create()) {
+            final List<JsonPatch> patches
+                = executor.diff(sources, targets, TIMEOUT);
+            for (int i = 0; i < 2; i++)
+                assertEquals(patches.get(i), JsonDiff.asJsonPatch(
+                    sources.get(i), targets.get(i)));
+        }
+    }
+
+    @Test
+    public void failuresAreAggregated()
+        throws IOException, InterruptedException
+    {
+        final JsonPatch patch
+            = JsonPatch.fromJson("[{\"op\":\"remove\",\"path\":\"/a\"}]");
+        final List<JsonNode> values = List.of(read("{}"), read("{\"a\":1}"),
+            read("[]"));
+
+        try (final BatchExecutor executor = BatchExecutor.create()) {
+            executor.apply(patch, values, TIMEOUT);
+            fail("No exception thrown!");
+        } catch (BatchException e) {
+            assertEquals(e.getTaskCount(), 3);
+            assertEquals(e.getFailures().keySet(), Set.of(0, 2));
+            for (final Throwable failure: e.getFailures().values())
+                assertTrue(failure instanceof JsonPatchException);
+            assertEquals(e.getSuppressed().length, 2);
+        }
+    }
+
+    @Test
+    public void tasksNotCompletedInTimeAreCancelled()
+        throws InterruptedException
+    {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Callable<JsonNode> fast = () -> FACTORY.nullNode();
+        final Callable<JsonNode> slow = () -> {
+            try {
+                Thread.sleep(60_000L);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return FACTORY.nullNode();
+        };
+
+        try (final BatchExecutor executor = BatchExecutor.create()) {
+            executor.invokeAll(List.of(fast, slow, fast),
+                Duration.ofMillis(100L));
+            fail("No exception thrown!");
+        } catch (BatchException e) {
+            assertEquals(e.getFailures().keySet(), Set.of(1));
+            assertTrue(e.getFailures().get(1) instanceof TimeoutException);
+        }
+
+        assertEquals(interrupted.getCount(), 0L);
+    }
+
+    @Test
+    public void tasksRunOnVirtualThreadsByDefault()
+        throws BatchException, InterruptedException
+    {
+        final Callable<Boolean> task = () -> Thread.currentThread().isVirtual();
+
+        try (final BatchExecutor executor = BatchExecutor.create()) {
+            assertEquals(executor.invokeAll(List.of(task, task), TIMEOUT),
+                List.of(true, true));
+        }
+    }
+
+    @Test
+    public void providedExecutorIsNotShutDown()
+        throws BatchException, InterruptedException
+    {
+        final ExecutorService service = Executors.newSingleThreadExecutor();
+        final Callable<Integer> task = () -> 1;
+
+        try {
+            try (final BatchExecutor executor
+                = BatchExecutor.using(service)) {
+                assertEquals(executor.invokeAll(List.of(task), TIMEOUT),
+                    List.of(1));
+            }
+            assertFalse(service.isShutdown());
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.flow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.Patch;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Processor} applying a stream of patches to a JSON value, and
+ * publishing the successive states of this value
+ *
+ * <p>Subscribe an instance of this class to a publisher of patches (which may
+ * be any mix of JSON Patches and JSON Merge Patches), and subscribe a single
+ * subscriber to it. Patches are applied in order on the given executor,
+ * never on the thread delivering them, so that a large patch does not block
+ * the publisher.</p>
+ *
+ * <p>Patches are requested from the publisher in batches of at most the
+ * buffer size given at construction time, whatever the demand of the
+ * subscriber. If the subscriber is slower than the publisher, patches are
+ * <i>coalesced</i>: all patches received are applied, but only the latest
+ * state of the value is published when the subscriber requests more. A
+ * subscriber therefore always receives the most recent state, and the last
+ * state it receives before completion is the result of all patches.</p>
+ *
+ * <p>Patches are applied with {@link Patch#applyShared(JsonNode)}: successive
+ * states share all unmodified nodes, and neither the initial value nor the
+ * published states must be modified.</p>
+ *
+ * <p>If a patch fails to apply, the subscription to the publisher is
+ * cancelled and the subscriber receives the {@link JsonPatchException}.
+ * Errors from the publisher are passed on to the subscriber as well.</p>
+ */
+public final class PatchProcessor
+    implements Flow.Processor<Patch, JsonNode>
+{
+    private final Executor executor;
+    private final int bufferSize;
+    private final int replenishThreshold;
+
+    private final Queue<Patch> patches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super JsonNode> downstream;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+
+    /*
+     * Only accessed from the drain loop
+     */
+    private JsonNode state;
+    private boolean changed;
+    private int consumed;
+    private boolean terminated;
+
+    /**
+     * Constructor
+     *
+     * <p>Patches are applied on the common fork/join pool, and requested
+     * {@link Flow#defaultBufferSize()} at a time.</p>
+     *
+     * @param initial the initial value
+     */
+    public PatchProcessor(final JsonNode initial)
+    {
+        this(initial, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initial the initial value
+     * @param executor the executor on which to apply patches
+     * @param bufferSize the maximum number of patches requested from the
+     * publisher but not applied yet
+     * @throws IllegalArgumentException buffer size is not strictly positive
+     */
+    public PatchProcessor(final JsonNode initial, final Executor executor,
+        final int bufferSize)
+    {
+        state = Objects.requireNonNull(initial, "initial value");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("buffer size must be strictly"
+                + " positive");
+        this.bufferSize = bufferSize;
+        replenishThreshold = bufferSize - (bufferSize >> 1);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super JsonNode> subscriber)
+    {
+        Objects.requireNonNull(subscriber, "subscriber");
+
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new Subscription());
+                schedule();
+                return;
+            }
+        }
+
+        subscriber.onSubscribe(new Flow.Subscription()
+        {
+            @Override
+            public void request(final long n)
+            {
+            }
+
+            @Override
+            public void cancel()
+            {
+            }
+        });
+        subscriber.onError(new IllegalStateException("this processor only"
+            + " supports one subscriber"));
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription)
+    {
+        Objects.requireNonNull(subscription, "subscription");
+
+        synchronized (this) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(final Patch item)
+    {
+        patches.offer(Objects.requireNonNull(item, "patch"));
+        schedule();
+    }
+
+    @Override
+    public void onError(final Throwable throwable)
+    {
+        error = Objects.requireNonNull(throwable, "throwable");
+        done = true;
+        schedule();
+    }
+
+    @Override
+    public void onComplete()
+    {
+        done = true;
+        schedule();
+    }
+
+    private void schedule()
+    {
+        if (wip.getAndIncrement() != 0)
+            return;
+
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            cancelUpstream();
+            error = e;
+            done = true;
+            drain();
+        }
+    }
+
+    /*
+     * Only one thread at a time runs this loop; a call to schedule() while it
+     * runs makes it run one more time.
+     */
+    private void drain()
+    {
+        int missed = 1;
+
+        do {
+            if (terminated || cancelled) {
+                patches.clear();
+                return;
+            }
+
+            final Flow.Subscriber<? super JsonNode> subscriber = downstream;
+            final boolean finished = done;
+
+            if (error == null)
+                applyPatches();
+
+            final Throwable failure = error;
+
+            if (failure != null) {
+                patches.clear();
+                terminate(subscriber, failure);
+            } else {
+                if (subscriber != null && changed && requested.get() > 0L) {
+                    changed = false;
+                    if (requested.get() != Long.MAX_VALUE)
+                        requested.decrementAndGet();
+                    subscriber.onNext(state);
+                }
+
+                if (finished && patches.isEmpty() && !changed)
+                    terminate(subscriber, null);
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /*
+     * Apply all patches received so far. If a patch fails to apply, the
+     * failure is recorded as the error to pass on to the subscriber.
+     */
+    private void applyPatches()
+    {
+        Patch patch;
+
+        while ((patch = patches.poll()) != null) {
+            try {
+                state = patch.applyShared(state);
+            } catch (JsonPatchException | RuntimeException e) {
+                cancelUpstream();
+                error = e;
+                done = true;
+                return;
+            }
+            changed = true;
+            if (++consumed == replenishThreshold) {
+                consumed = 0;
+                upstream.request(replenishThreshold);
+            }
+        }
+    }
+
+    /*
+     * Complete the subscriber, with an error if not null. If there is no
+     * subscriber yet, the terminal state is left pending: the drain loop runs
+     * again, and completes the subscriber, when one subscribes.
+     */
+    private void terminate(final Flow.Subscriber<? super JsonNode> subscriber,
+        final Throwable failure)
+    {
+        if (subscriber == null)
+            return;
+
+        terminated = true;
+        patches.clear();
+        if (failure == null)
+            subscriber.onComplete();
+        else
+            subscriber.onError(failure);
+    }
+
+    private void cancelUpstream()
+    {
+        final Flow.Subscription subscription = upstream;
+        if (subscription != null)
+            subscription.cancel();
+    }
+
+    private final class Subscription
+        implements Flow.Subscription
+    {
+        @Override
+        public void request(final long n)
+        {
+            if (n <= 0L) {
+                cancelUpstream();
+                error = new IllegalArgumentException("non positive request: "
+                    + n);
+                done = true;
+                schedule();
+                return;
+            }
+
+            long current, next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE)
+                    return;
+                next = current + n;
+                if (next < 0L)
+                    next = Long.MAX_VALUE;
+            } while (!requested.compareAndSet(current, next));
+
+            schedule();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            cancelUpstream();
+            schedule();
+        }
+    }
+}
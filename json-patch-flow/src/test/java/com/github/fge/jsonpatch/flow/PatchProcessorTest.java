@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.flow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.Patch;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public final class PatchProcessorTest
+{
+    /*
+     * Run everything on the calling thread, so that the tests are
+     * deterministic
+     */
+    private static final Executor DIRECT = Runnable::run;
+
+    private static Patch increment(final int value)
+        throws IOException
+    {
+        return JsonPatch.fromJson("[{\"op\":\"replace\",\"path\":\"/n\","
+            + "\"value\":" + value + "}]");
+    }
+
+    private static JsonNode state(final int value)
+        throws IOException
+    {
+        return JacksonUtils.getReader().readTree("{\"n\":" + value + '}');
+    }
+
+    @Test
+    public void statesArePublishedOnDemand()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+
+        sink.subscription.request(2L);
+        source.emit(increment(1));
+        source.emit(increment(2));
+        source.emit(increment(3));
+
+        assertEquals(sink.states, List.of(state(1), state(2)));
+
+        sink.subscription.request(1L);
+        assertEquals(sink.states, List.of(state(1), state(2), state(3)));
+
+        source.complete();
+        assertTrue(sink.completed);
+        assertNull(sink.error);
+    }
+
+    @Test
+    public void patchesAreCoalescedForSlowSubscribers()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+
+        for (int i = 1; i <= 10; i++)
+            source.emit(increment(i));
+        source.complete();
+
+        assertTrue(sink.states.isEmpty());
+        assertFalse(sink.completed);
+
+        sink.subscription.request(5L);
+        assertEquals(sink.states, List.of(state(10)));
+        assertTrue(sink.completed);
+    }
+
+    @Test
+    public void upstreamDemandIsBounded()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 4);
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+
+        assertEquals(source.requested, 4L);
+
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(source.requested > 0L);
+            source.emit(increment(i));
+        }
+
+        assertTrue(source.requested <= 4L);
+        assertTrue(sink.states.isEmpty());
+    }
+
+    @Test
+    public void failedPatchesAreSignaledAndCancelUpstream()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+        sink.subscription.request(Long.MAX_VALUE);
+
+        source.emit(increment(1));
+        source.emit(JsonPatch.fromJson(
+            "[{\"op\":\"remove\",\"path\":\"/x\"}]"));
+
+        assertEquals(sink.states, List.of(state(1)));
+        assertTrue(sink.error instanceof JsonPatchException);
+        assertTrue(source.cancelled);
+        assertFalse(sink.completed);
+    }
+
+    @Test
+    public void upstreamErrorsArePassedOn()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+        final Exception failure = new Exception();
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+        source.fail(failure);
+
+        assertSame(sink.error, failure);
+    }
+
+    @Test(timeOut = 5000L)
+    public void upstreamErrorsBeforeSubscribeArePassedOn()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+        final Exception failure = new Exception();
+
+        source.subscribe(processor);
+        source.fail(failure);
+        processor.subscribe(sink);
+
+        assertSame(sink.error, failure);
+    }
+
+    @Test(timeOut = 5000L)
+    public void failedPatchesBeforeSubscribeAreSignaled()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+
+        source.subscribe(processor);
+        source.emit(JsonPatch.fromJson(
+            "[{\"op\":\"remove\",\"path\":\"/x\"}]"));
+        assertTrue(source.cancelled);
+
+        processor.subscribe(sink);
+
+        assertTrue(sink.states.isEmpty());
+        assertTrue(sink.error instanceof JsonPatchException);
+        assertFalse(sink.completed);
+    }
+
+    @Test(timeOut = 5000L)
+    public void rejectedExecutionsAreSignaled()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor = new PatchProcessor(state(0),
+            task -> {
+                throw new RejectedExecutionException();
+            }, 16);
+
+        source.subscribe(processor);
+        source.emit(increment(1));
+        assertTrue(source.cancelled);
+
+        processor.subscribe(sink);
+
+        assertTrue(sink.error instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void onlyOneSubscriberIsAllowed()
+        throws IOException
+    {
+        final PatchProcessor processor = new PatchProcessor(state(0));
+        final Sink first = new Sink();
+        final Sink second = new Sink();
+
+        processor.subscribe(first);
+        processor.subscribe(second);
+
+        assertNull(first.error);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void nonPositiveRequestsAreErrors()
+        throws IOException
+    {
+        final Source source = new Source();
+        final Sink sink = new Sink();
+        final PatchProcessor processor
+            = new PatchProcessor(state(0), DIRECT, 16);
+
+        source.subscribe(processor);
+        processor.subscribe(sink);
+        sink.subscription.request(0L);
+
+        assertTrue(sink.error instanceof IllegalArgumentException);
+        assertTrue(source.cancelled);
+    }
+
+    @Test
+    public void lastPublishedStateIsTheResultOfAllPatches()
+        throws IOException, InterruptedException
+    {
+        final PatchProcessor processor = new PatchProcessor(state(0));
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Sink sink = new Sink()
+        {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription)
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onComplete()
+            {
+                super.onComplete();
+                latch.countDown();
+            }
+        };
+
+        processor.subscribe(sink);
+
+        try (
+            final SubmissionPublisher<Patch> publisher
+                = new SubmissionPublisher<>();
+        ) {
+            publisher.subscribe(processor);
+            for (int i = 1; i <= 1000; i++)
+                publisher.submit(increment(i));
+        }
+
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+        assertNull(sink.error);
+        assertEquals(sink.states.get(sink.states.size() - 1), state(1000));
+    }
+
+    private static final class Source
+        implements Flow.Publisher<Patch>, Flow.Subscription
+    {
+        private Flow.Subscriber<? super Patch> subscriber;
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super Patch> subscriber)
+        {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(final long n)
+        {
+            requested += n;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        void emit(final Patch patch)
+        {
+            assertTrue(requested > 0L, "patch emitted without demand");
+            requested--;
+            subscriber.onNext(patch);
+        }
+
+        void complete()
+        {
+            subscriber.onComplete();
+        }
+
+        void fail(final Throwable throwable)
+        {
+            subscriber.onError(throwable);
+        }
+    }
+
+    private static class Sink
+        implements Flow.Subscriber<JsonNode>
+    {
+        private final List<JsonNode> states = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final JsonNode item)
+        {
+            states.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
+}
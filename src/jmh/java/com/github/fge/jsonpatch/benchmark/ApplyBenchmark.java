@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apply JSON Patches made of a single operation, or of a run of operations
+ *
+ * <p>{@link #apply()} includes the cost of copying the whole document;
+ * {@link #applyShared()} only copies the containers on the path to the
+ * target.</p>
+ *
+ * <p>For {@link Shape#WIDE_ARRAY}, operations are performed on elements of
+ * the {@code data} array instead of the target object. Since insertions and
+ * removals in arrays usually come in sequences, the {@code add} and {@code
+ * remove} patches are then runs of ten operations at the same
+ * index.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplyBenchmark
+{
+    private static final int RUN = 10;
+
+    @Param({ "add", "remove", "replace", "move", "copy", "test" })
+    public String op;
+
+    @Param({ "SMALL", "MEDIUM", "LARGE", "DEEP", "WIDE_ARRAY" })
+    public Shape shape;
+
+    private JsonNode document;
+    private JsonPatch patch;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        document = Documents.create(shape);
+        patch = JsonPatch.fromJson('[' + (shape.arraySize > 0
+            ? arrayOperations(op, shape.arraySize)
+            : operation(op, shape.target())) + ']');
+    }
+
+    @Benchmark
+    public JsonNode apply()
+        throws JsonPatchException
+    {
+        return patch.apply(document);
+    }
+
+    @Benchmark
+    public JsonNode applyShared()
+        throws JsonPatchException
+    {
+        return patch.applyShared(document);
+    }
+
+    private static String operation(final String op, final String target)
+    {
+        switch (op) {
+            case "add":
+                return "{\"op\":\"add\",\"path\":\"" + target
+                    + "/c\",\"value\":{\"x\":1}}";
+            case "remove":
+                return "{\"op\":\"remove\",\"path\":\"" + target + "/a\"}";
+            case "replace":
+                return "{\"op\":\"replace\",\"path\":\"" + target
+                    + "/a\",\"value\":2}";
+            case "move":
+                return "{\"op\":\"move\",\"from\":\"" + target
+                    + "/a\",\"path\":\"" + target + "/c\"}";
+            case "copy":
+                return "{\"op\":\"copy\",\"from\":\"" + target
+                    + "/b\",\"path\":\"" + target + "/c\"}";
+            case "test":
+                return "{\"op\":\"test\",\"path\":\"" + target
+                    + "/b\",\"value\":[0,1,2]}";
+            default:
+                throw new IllegalArgumentException("unknown operation "
+                    + op);
+        }
+    }
+
+    private static String arrayOperations(final String op, final int size)
+    {
+        final int middle = size / 2;
+        final StringBuilder sb = new StringBuilder();
+
+        switch (op) {
+            case "add":
+                for (int i = 0; i < RUN; i++)
+                    sb.append(i == 0 ? "" : ",")
+                        .append("{\"op\":\"add\",\"path\":\"/data/")
+                        .append(middle).append("\",\"value\":").append(-i)
+                        .append('}');
+                return sb.toString();
+            case "remove":
+                for (int i = 0; i < RUN; i++)
+                    sb.append(i == 0 ? "" : ",")
+                        .append("{\"op\":\"remove\",\"path\":\"/data/0\"}");
+                return sb.toString();
+            case "replace":
+                return "{\"op\":\"replace\",\"path\":\"/data/" + middle
+                    + "\",\"value\":-1}";
+            case "move":
+                return "{\"op\":\"move\",\"from\":\"/data/0\","
+                    + "\"path\":\"/data/-\"}";
+            case "copy":
+                return "{\"op\":\"copy\",\"from\":\"/data/" + middle
+                    + "\",\"path\":\"/data/0\"}";
+            case "test":
+                return "{\"op\":\"test\",\"path\":\"/data/" + middle
+                    + "\",\"value\":" + middle + '}';
+            default:
+                throw new IllegalArgumentException("unknown operation "
+                    + op);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Generated documents used by benchmarks
+ *
+ * <p>All documents are JSON objects with a {@code data} member, holding the
+ * bulk of the document, and a <i>target</i> object, on which benchmarked
+ * operations are performed. This target object is:</p>
+ *
+ * <pre>
+ *     { "a": 1, "b": [ 0, 1, 2 ] }
+ * </pre>
+ *
+ * <p>and its location is given by {@link Shape#target()}.</p>
+ */
+final class Documents
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private Documents()
+    {
+    }
+
+    /**
+     * Generate a document
+     *
+     * @param shape the shape of the document
+     * @return a new document
+     */
+    static JsonNode create(final Shape shape)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+
+        if (shape.arraySize > 0) {
+            final ArrayNode array = ret.putArray("data");
+            for (int i = 0; i < shape.arraySize; i++)
+                array.add(i);
+        } else {
+            final ArrayNode array = ret.putArray("data");
+            for (int i = 0; i < shape.records; i++)
+                array.add(record(i));
+        }
+
+        ObjectNode parent = ret;
+
+        for (int i = 0; i < shape.depth; i++)
+            parent = parent.putObject("child");
+
+        final ObjectNode target = parent.putObject("target");
+        target.put("a", 1);
+        target.putArray("b").add(0).add(1).add(2);
+
+        return ret;
+    }
+
+    /**
+     * Generate a modified version of a document
+     *
+     * <p>Compared to the document generated by {@link #create(Shape)}, member
+     * {@code a} of the target object is changed and member {@code c} is
+     * added; one record out of a hundred has its score changed; for {@link
+     * Shape#WIDE_ARRAY}, an element is removed in the middle of the array and
+     * another is appended.</p>
+     *
+     * @param shape the shape of the document
+     * @return a new document
+     */
+    static JsonNode modified(final Shape shape)
+    {
+        final JsonNode ret = create(shape);
+        final ArrayNode data = (ArrayNode) ret.get("data");
+        final int size = data.size();
+
+        if (shape.arraySize > 0) {
+            data.remove(size / 2);
+            data.add(size);
+        } else {
+            for (int i = 0; i < size; i += 100)
+                ((ObjectNode) data.get(i)).put("score", -1.0);
+        }
+
+        JsonNode parent = ret;
+
+        for (int i = 0; i < shape.depth; i++)
+            parent = parent.get("child");
+
+        final ObjectNode target = (ObjectNode) parent.get("target");
+        target.put("a", 2);
+        target.putObject("c").put("x", 1);
+
+        return ret;
+    }
+
+    private static JsonNode record(final int index)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+
+        ret.put("id", index);
+        ret.put("name", "record #" + index);
+        ret.put("score", index * 0.5);
+        ret.put("active", index % 2 == 0);
+        ret.putArray("tags").add("alpha").add("beta");
+        return ret;
+    }
+}
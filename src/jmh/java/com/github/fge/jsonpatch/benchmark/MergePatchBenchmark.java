@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apply a JSON Merge Patch modifying the target object of a document
+ *
+ * <p>The merge patch changes member {@code a} of the target object, removes
+ * member {@code b} and adds member {@code c}.</p>
+ *
+ * <p>For {@link Shape#WIDE_ARRAY}, it also replaces the {@code data} array
+ * with the array of {@link Documents#modified(Shape)}: a merge patch cannot
+ * address array elements, and can only change an array by replacing it as a
+ * whole.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergePatchBenchmark
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    @Param({ "SMALL", "MEDIUM", "LARGE", "DEEP", "WIDE_ARRAY" })
+    public Shape shape;
+
+    private JsonNode document;
+    private JsonMergePatch patch;
+
+    @Setup
+    public void setup()
+        throws JsonPatchException
+    {
+        document = Documents.create(shape);
+
+        final ObjectNode node = FACTORY.objectNode();
+        ObjectNode parent = node;
+
+        for (final String token: shape.target().substring(1).split("/"))
+            parent = parent.putObject(token);
+
+        parent.put("a", 2);
+        parent.putNull("b");
+        parent.putObject("c").put("x", 1);
+
+        if (shape.arraySize > 0)
+            node.set("data", Documents.modified(shape).get("data"));
+
+        patch = JsonMergePatch.fromJson(node);
+    }
+
+    @Benchmark
+    public JsonNode apply()
+        throws JsonPatchException
+    {
+        return patch.apply(document);
+    }
+
+    @Benchmark
+    public JsonNode applyShared()
+        throws JsonPatchException
+    {
+        return patch.applyShared(document);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonpatch.JsonPatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read JSON Patches, from raw bytes and from already parsed JSON values
+ *
+ * <p>Patches cycle through all operation types; the value of {@code add},
+ * {@code replace} and {@code test} operations is a small object.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+    /*
+     * 50000 operations are about 4 MB
+     */
+    @Param({ "10", "1000", "50000" })
+    public int operations;
+
+    private byte[] bytes;
+    private JsonNode node;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder("[");
+
+        for (int i = 0; i < operations; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(operation(i));
+        }
+
+        bytes = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        node = JacksonUtils.getReader().readTree(bytes);
+    }
+
+    @Benchmark
+    public JsonPatch fromBytes()
+        throws IOException
+    {
+        return JsonPatch.fromJson(bytes);
+    }
+
+    @Benchmark
+    public JsonPatch fromJsonNode()
+        throws IOException
+    {
+        return JsonPatch.fromJson(node);
+    }
+
+    private static String operation(final int index)
+    {
+        final String path = "/records/" + index % 100 + "/member" + index;
+        final String value = "{\"id\":" + index + ",\"name\":\"record\"}";
+
+        switch (index % 6) {
+            case 0:
+                return "{\"op\":\"add\",\"path\":\"" + path + "\",\"value\":"
+                    + value + '}';
+            case 1:
+                return "{\"op\":\"remove\",\"path\":\"" + path + "\"}";
+            case 2:
+                return "{\"op\":\"replace\",\"path\":\"" + path
+                    + "\",\"value\":" + value + '}';
+            case 3:
+                return "{\"op\":\"move\",\"from\":\"" + path
+                    + "\",\"path\":\"/moved" + index + "\"}";
+            case 4:
+                return "{\"op\":\"copy\",\"from\":\"" + path
+                    + "\",\"path\":\"/copied" + index + "\"}";
+            default:
+                return "{\"op\":\"test\",\"path\":\"" + path + "\",\"value\":"
+                    + value + '}';
+        }
+    }
+}
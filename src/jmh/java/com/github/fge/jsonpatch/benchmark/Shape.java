@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.benchmark;
+
+/**
+ * Shapes of documents generated by {@link Documents}
+ *
+ * <p>Sizes are those of the serialized documents, approximately.</p>
+ */
+public enum Shape
+{
+    /**
+     * Ten records, about 1 kB
+     */
+    SMALL(10, 0, 0),
+    /**
+     * 1500 records, about 100 kB
+     */
+    MEDIUM(1500, 0, 0),
+    /**
+     * 60000 records, about 4 MB
+     */
+    LARGE(60000, 0, 0),
+    /**
+     * Ten records, and the target nested 200 levels deep
+     */
+    DEEP(10, 200, 0),
+    /**
+     * An array of 100000 integers, about 600 kB
+     */
+    WIDE_ARRAY(0, 0, 100000),
+    ;
+
+    final int records;
+    final int depth;
+    final int arraySize;
+
+    Shape(final int records, final int depth, final int arraySize)
+    {
+        this.records = records;
+        this.depth = depth;
+        this.arraySize = arraySize;
+    }
+
+    /**
+     * Return the JSON Pointer to the target object, as a string
+     *
+     * @return the pointer
+     */
+    String target()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < depth; i++)
+            sb.append("/child");
+
+        return sb.append("/target").toString();
+    }
+}
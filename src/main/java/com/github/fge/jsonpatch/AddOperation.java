@@ -22,11 +22,7 @@ package com.github.fge.jsonpatch;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.github.fge.jackson.jsonpointer.ReferenceToken;
-import com.github.fge.jackson.jsonpointer.TokenResolver;
 
 import java.util.NoSuchElementException;
 
@@ -68,75 +64,106 @@ import java.util.NoSuchElementException;
 public final class AddOperation
     extends PathValueOperation
 {
-    private static final ReferenceToken LAST_ARRAY_ELEMENT
-        = ReferenceToken.fromRaw("-");
+    public AddOperation(final JsonPointer path, final JsonNode value)
+    {
+        super("add", path, value);
+    }
+
+    private AddOperation(final JsonPointer path, final JsonNode value,
+        final boolean copy)
+    {
+        super("add", path, value, copy);
+    }
 
+    /**
+     * Build a new {@code add} operation, taking ownership of the value
+     *
+     * <p>Unlike the constructor, this method does not copy the value: the
+     * caller hands it over to the operation and must not modify it, nor
+     * any of its descendants, afterwards. This is what patches read from
+     * JSON use, since nothing else refers to the values just parsed.</p>
+     *
+     * @param path the path where to add the value
+     * @param value the value; it must not be modified afterwards
+     * @return a new operation
+     */
     @JsonCreator
-    public AddOperation(@JsonProperty("path") final JsonPointer path,
+    public static AddOperation withOwnedValue(
+        @JsonProperty("path") final JsonPointer path,
         @JsonProperty("value") final JsonNode value)
     {
-        super("add", path, value);
+        return new AddOperation(path, value, false);
     }
 
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
     {
-        if (path.isEmpty())
-            return value;
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
+    {
+        addValue(context, preparedPath(), context.duplicate(value));
+    }
+
+    /**
+     * Add a value to the value held by a patch context, with the semantics
+     * of this operation
+     *
+     * <p>The value is inserted as is, without being copied.</p>
+     *
+     * @param context the patch context
+     * @param target the target path
+     * @param value the value to add
+     * @throws JsonPatchException the value cannot be added at this path
+     */
+    static void addValue(final PatchContext context,
+        final PreparedPointer target, final JsonNode value)
+        throws JsonPatchException
+    {
+        if (target.parent == null) {
+            context.setRoot(value);
+            return;
+        }
 
         /*
          * Check the parent node: it must exist and be a container (ie an array
          * or an object) for the add operation to work.
          */
-        final JsonNode parentNode = path.parent().path(node);
+        final JsonNode parentNode = context.get(target.parent);
         if (parentNode.isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchParent"));
+            throw context.failure(PatchFailureCode.NO_SUCH_PARENT,
+                target.pointer);
         if (!parentNode.isContainerNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.parentNotContainer"));
-        return parentNode.isArray()
-            ? addToArray(path, node)
-            : addToObject(path, node);
+            throw context.failure(PatchFailureCode.PARENT_NOT_CONTAINER,
+                target.pointer);
+        if (parentNode.isArray())
+            addToArray(context, target, parentNode.size(), value);
+        else
+            context.putMember(target.parent, target.raw, value);
     }
 
-    private JsonNode addToArray(final JsonPointer path, final JsonNode node)
+    private static void addToArray(final PatchContext context,
+        final PreparedPointer target, final int size, final JsonNode value)
         throws JsonPatchException
     {
-        final JsonNode ret = node.deepCopy();
-        final ArrayNode target = (ArrayNode) path.parent().get(ret);
-
-        final TokenResolver<JsonNode> token = Iterables.getLast(path);
-
-        if (token.getToken().equals(LAST_ARRAY_ELEMENT)) {
-            target.add(value);
-            return ret;
+        if (target.append) {
+            context.insertElement(target.parent, size, value);
+            return;
         }
 
-        final int size = target.size();
-        final int index;
-        try {
-            index = Integer.parseInt(token.toString());
-        } catch (NumberFormatException ignored) {
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.notAnIndex"));
-        }
+        if (!target.numeric)
+            throw context.failure(PatchFailureCode.NOT_AN_INDEX,
+                target.pointer);
 
+        final int index = target.index;
         if (index < 0 || index > size)
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchIndex"));
+            throw context.failure(PatchFailureCode.NO_SUCH_INDEX,
+                target.pointer);
 
-        target.insert(index, value);
-        return ret;
-    }
-
-    private JsonNode addToObject(final JsonPointer path, final JsonNode node)
-    {
-        final TokenResolver<JsonNode> token = Iterables.getLast(path);
-        final JsonNode ret = node.deepCopy();
-        final ObjectNode target = (ObjectNode) path.parent().get(ret);
-        target.set(token.getToken().getRaw(), value);
-        return ret;
+        context.insertElement(target.parent, index, value);
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A patched JSON value, along with the patch undoing the changes
+ *
+ * @see JsonPatch#applyWithInverse(JsonNode)
+ */
+public final class AppliedPatch
+{
+    private final JsonNode node;
+    private final JsonPatch inverse;
+
+    AppliedPatch(final JsonNode node, final JsonPatch inverse)
+    {
+        this.node = node;
+        this.inverse = inverse;
+    }
+
+    /**
+     * Return the patched value
+     *
+     * @return the patched value
+     */
+    public JsonNode getNode()
+    {
+        return node;
+    }
+
+    /**
+     * Return the patch undoing the changes
+     *
+     * <p>Applying this patch to the patched value yields a value equal to the
+     * original one; the order of object members may differ, however.</p>
+     *
+     * @return the inverse patch
+     */
+    public JsonPatch getInverse()
+    {
+        return inverse;
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A run of {@code add} and {@code remove} operations on elements of one array
+ *
+ * <p>Inserting or removing an array element shifts all elements after it;
+ * applying many such operations to a large array one by one therefore takes
+ * time proportional to the size of the array times the number of operations.
+ * </p>
+ *
+ * <p>Instead, consecutive {@code add} and {@code remove} operations of a
+ * patch whose paths have the same parent are simulated first: the array is
+ * described as a sequence of <i>pieces</i>, each of which is either a range
+ * of elements of the original array or an inserted value, kept in a tree
+ * indexed by position (an implicit treap). Each operation is checked against
+ * the size of the array at this point, exactly as if it were applied on its
+ * own, and splits at most one piece. The array is then rebuilt once from the
+ * resulting pieces, unless applying the operations one by one would shift
+ * fewer elements than rebuilding the array copies.</p>
+ *
+ * <p>If the parent turns out not to be an array, operations are applied one
+ * by one. If an operation fails, the operations before it are applied before
+ * the exception is thrown, so that the value is in the same state as if all
+ * operations had been applied in turn.</p>
+ */
+final class ArraySplice
+{
+    /*
+     * Shortest run of operations worth simulating
+     */
+    private static final int MIN_RUN = 2;
+
+    private final ArrayNode array;
+    private final int originalSize;
+    private final List<Step> steps = new ArrayList<Step>();
+
+    private Piece root;
+    private int size;
+
+    /*
+     * Number of elements shifted if operations were applied one by one
+     */
+    private long shifts = 0L;
+
+    /*
+     * Results of split()
+     */
+    private Piece head;
+    private Piece tail;
+
+    private ArraySplice(final ArrayNode array)
+    {
+        this.array = array;
+        originalSize = size = array.size();
+        root = size == 0 ? null : new Piece(0, size, null, nextPriority());
+    }
+
+    /**
+     * Apply the operation of a patch at a given index, along with the
+     * operations following it which are part of the same run
+     *
+     * @param operations the operations of the patch
+     * @param start the index of the operation to apply
+     * @param context the patch context
+     * @return the index of the next operation to apply
+     * @throws JsonPatchException an operation failed to apply
+     */
+    static int apply(final List<JsonPatchOperation> operations,
+        final int start, final PatchContext context)
+        throws JsonPatchException
+    {
+        final int end = runEnd(operations, start);
+
+        if (end - start < MIN_RUN) {
+            context.setOperationIndex(start);
+            operations.get(start).applyInPlace(context);
+            return start + 1;
+        }
+
+        final JsonPointer parent = operations.get(start).preparedPath().parent;
+        final JsonNode node = context.get(parent);
+
+        if (!node.isArray()) {
+            for (int i = start; i < end; i++) {
+                context.setOperationIndex(i);
+                operations.get(i).applyInPlace(context);
+            }
+            return end;
+        }
+
+        final ArraySplice splice = new ArraySplice((ArrayNode) node);
+
+        try {
+            for (int i = start; i < end; i++) {
+                context.setOperationIndex(i);
+                splice.simulate(operations.get(i), context);
+            }
+        } finally {
+            splice.applyTo(context, parent);
+        }
+
+        return end;
+    }
+
+    /**
+     * The changes made by the operations, in order
+     *
+     * @return the list of changes
+     */
+    List<Step> steps()
+    {
+        return steps;
+    }
+
+    /**
+     * Build the new list of elements
+     *
+     * @param original the array to patch, or a copy of it
+     * @return the new list of elements
+     */
+    List<JsonNode> elements(final ArrayNode original)
+    {
+        final List<JsonNode> ret = new ArrayList<JsonNode>(size);
+        collect(root, original, ret);
+        return ret;
+    }
+
+    private void applyTo(final PatchContext context, final JsonPointer parent)
+    {
+        if (steps.isEmpty())
+            return;
+
+        if (shifts > (long) originalSize + steps.size()) {
+            context.spliceElements(parent, this);
+            return;
+        }
+
+        for (final Step step: steps)
+            if (step.insert)
+                context.insertElement(parent, step.index, step.value);
+            else
+                context.removeElement(parent, step.index);
+    }
+
+    private void simulate(final JsonPatchOperation operation,
+        final PatchContext context)
+        throws JsonPatchException
+    {
+        final PreparedPointer target = operation.preparedPath();
+
+        if (operation instanceof RemoveOperation) {
+            if (!isElement(target))
+                throw context.failure(PatchFailureCode.NO_SUCH_PATH,
+                    target.pointer);
+            remove(target.index);
+            return;
+        }
+
+        final int index;
+
+        if (target.append)
+            index = size;
+        else if (!target.numeric)
+            throw context.failure(PatchFailureCode.NOT_AN_INDEX,
+                target.pointer);
+        else
+            index = target.index;
+
+        if (index < 0 || index > size)
+            throw context.failure(PatchFailureCode.NO_SUCH_INDEX,
+                target.pointer);
+
+        insert(index, context.duplicate(((AddOperation) operation).value));
+    }
+
+    /*
+     * Tell whether the last token of a pointer designates an existing
+     * element; array indices with leading zeroes are not accepted by JSON
+     * Pointer, see JsonNodeResolver.
+     */
+    private boolean isElement(final PreparedPointer target)
+    {
+        if (!target.numeric || target.index < 0 || target.index >= size)
+            return false;
+        return target.raw.charAt(0) != '0' || target.raw.length() == 1;
+    }
+
+    private void insert(final int index, final JsonNode value)
+    {
+        split(root, index);
+        final Piece left = head;
+        final Piece right = tail;
+        final Piece piece = new Piece(0, 0, value, nextPriority());
+        root = merge(merge(left, piece), right);
+        shifts += size - index;
+        size++;
+        steps.add(new Step(true, index, value));
+    }
+
+    private void remove(final int index)
+    {
+        split(root, index);
+        final Piece left = head;
+        split(tail, 1);
+        final Piece removed = head;
+        root = merge(left, tail);
+        size--;
+        shifts += size - index;
+        steps.add(new Step(false, index, removed.value != null
+            ? removed.value : array.get(removed.from)));
+    }
+
+    /*
+     * Split a tree into the trees of its first count elements, and of the
+     * remaining elements; results are stored in head and tail. A range which
+     * straddles the split point is cut in two.
+     */
+    private void split(final Piece piece, final int count)
+    {
+        if (piece == null) {
+            head = tail = null;
+            return;
+        }
+
+        final int before = Piece.size(piece.left);
+
+        if (count <= before) {
+            split(piece.left, count);
+            piece.left = tail;
+            piece.update();
+            tail = piece;
+            return;
+        }
+
+        final int after = before + piece.length();
+
+        if (count >= after) {
+            split(piece.right, count - after);
+            piece.right = head;
+            piece.update();
+            head = piece;
+            return;
+        }
+
+        /*
+         * The second half of the range takes the place of the piece in the
+         * tree, with the same priority, so as not to break the heap order
+         */
+        final int cut = piece.from + count - before;
+        final Piece second = new Piece(cut, piece.to, null, piece.priority);
+        second.right = piece.right;
+        second.update();
+        piece.to = cut;
+        piece.right = null;
+        piece.update();
+        head = piece;
+        tail = second;
+    }
+
+    private static Piece merge(final Piece left, final Piece right)
+    {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static void collect(final Piece piece, final ArrayNode original,
+        final List<JsonNode> elements)
+    {
+        if (piece == null)
+            return;
+
+        collect(piece.left, original, elements);
+        if (piece.value != null)
+            elements.add(piece.value);
+        else
+            for (int i = piece.from; i < piece.to; i++)
+                elements.add(original.get(i));
+        collect(piece.right, original, elements);
+    }
+
+    /*
+     * Find the end of the run of operations starting at a given index
+     */
+    private static int runEnd(final List<JsonPatchOperation> operations,
+        final int start)
+    {
+        final JsonPatchOperation first = operations.get(start);
+        final int size = operations.size();
+
+        if (!isSpliceable(first))
+            return start + 1;
+
+        int end = start + 1;
+
+        while (end < size && isSpliceable(operations.get(end))
+            && siblings(first.path, operations.get(end).path))
+            end++;
+
+        return end;
+    }
+
+    private static boolean isSpliceable(final JsonPatchOperation operation)
+    {
+        return operation instanceof AddOperation
+            || operation instanceof RemoveOperation;
+    }
+
+    /*
+     * Tell whether two non empty pointers have the same parent, without
+     * computing the parents
+     */
+    private static boolean siblings(final JsonPointer first,
+        final JsonPointer second)
+    {
+        final Iterator<TokenResolver<JsonNode>> i = first.iterator();
+        final Iterator<TokenResolver<JsonNode>> j = second.iterator();
+
+        if (!i.hasNext() || !j.hasNext())
+            return false;
+
+        TokenResolver<JsonNode> token1 = i.next();
+        TokenResolver<JsonNode> token2 = j.next();
+
+        while (i.hasNext() && j.hasNext()) {
+            if (!token1.equals(token2))
+                return false;
+            token1 = i.next();
+            token2 = j.next();
+        }
+
+        return !i.hasNext() && !j.hasNext();
+    }
+
+    private static int nextPriority()
+    {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    /**
+     * One insertion or removal, at an index of the array as it was at this
+     * point; the value is the inserted or the removed element
+     */
+    static final class Step
+    {
+        final boolean insert;
+        final int index;
+        final JsonNode value;
+
+        private Step(final boolean insert, final int index,
+            final JsonNode value)
+        {
+            this.insert = insert;
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /*
+     * Either a range of elements of the original array, or an inserted
+     * value, along with the number of elements in its subtree
+     */
+    private static final class Piece
+    {
+        private final int from;
+        private int to;
+        private final JsonNode value;
+        private final int priority;
+        private int size;
+        private Piece left;
+        private Piece right;
+
+        private Piece(final int from, final int to, final JsonNode value,
+            final int priority)
+        {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+            this.priority = priority;
+            size = length();
+        }
+
+        private int length()
+        {
+            return value != null ? 1 : to - from;
+        }
+
+        private void update()
+        {
+            size = size(left) + length() + size(right);
+        }
+
+        private static int size(final Piece piece)
+        {
+            return piece == null ? 0 : piece.size;
+        }
+    }
+}
@@ -39,6 +39,11 @@ import com.github.fge.jackson.jsonpointer.JsonPointer;
  * </ul>
  *
  * <p>It is an error if {@code from} fails to resolve to a JSON value.</p>
+ *
+ * <p>The value is copied once. When the patch is applied with {@link
+ * JsonPatch#applyShared(JsonNode)}, it is not copied at all: both locations
+ * refer to the same node, which is copied only if an operation later
+ * modifies it through either location.</p>
  */
 public final class CopyOperation
     extends DualPathOperation
@@ -54,10 +59,17 @@ public final class CopyOperation
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
     {
-        final JsonNode dupData = from.path(node).deepCopy();
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
+    {
+        final JsonNode dupData = context.get(from);
         if (dupData.isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchPath"));
-        return new AddOperation(path, dupData).apply(node);
+            throw context.failure(PatchFailureCode.NO_SUCH_PATH, from);
+        AddOperation.addValue(context, preparedPath(),
+            context.duplicate(dupData));
     }
 }
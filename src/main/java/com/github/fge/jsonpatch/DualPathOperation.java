@@ -21,6 +21,8 @@ package com.github.fge.jsonpatch;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
@@ -38,6 +40,16 @@ public abstract class DualPathOperation
     @JsonSerialize(using = ToStringSerializer.class)
     protected final JsonPointer from;
 
+    /*
+     * Pre-split form of from; see JsonPatchOperation
+     */
+    private PreparedPointer preparedFrom = null;
+
+    /*
+     * Serialized form of from; see JsonPatchOperation
+     */
+    private SerializableString serializedFrom = null;
+
     /**
      * Protected constructor
      *
@@ -58,9 +70,9 @@ public abstract class DualPathOperation
         throws IOException, JsonProcessingException
     {
         jgen.writeStartObject();
-        jgen.writeStringField("op", op);
-        jgen.writeStringField("path", path.toString());
-        jgen.writeStringField("from", from.toString());
+        writeOpAndPath(jgen);
+        jgen.writeFieldName(FROM);
+        jgen.writeString(serializedFrom());
         jgen.writeEndObject();
     }
 
@@ -72,10 +84,51 @@ public abstract class DualPathOperation
         serialize(jgen, provider);
     }
 
+    @Override
+    final void prepare()
+    {
+        super.prepare();
+        if (preparedFrom == null)
+            preparedFrom = new PreparedPointer(from);
+    }
+
+    /**
+     * Return the pre-split form of this operation's source path
+     *
+     * @return the prepared source path
+     */
+    final PreparedPointer preparedFrom()
+    {
+        final PreparedPointer ret = preparedFrom;
+        return ret != null ? ret : new PreparedPointer(from);
+    }
+
+    private SerializableString serializedFrom()
+    {
+        SerializableString ret = serializedFrom;
+        if (ret == null) {
+            ret = new SerializedString(from.toString());
+            serializedFrom = ret;
+        }
+        return ret;
+    }
+
     public final JsonPointer getFrom() {
         return from;
     }
 
+    @Override
+    public final boolean equals(final Object obj)
+    {
+        return super.equals(obj) && from.equals(((DualPathOperation) obj).from);
+    }
+
+    @Override
+    public final int hashCode()
+    {
+        return 31 * super.hashCode() + from.hashCode();
+    }
+
     @Override
     public final String toString()
     {
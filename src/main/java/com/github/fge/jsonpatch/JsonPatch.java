@@ -20,16 +20,21 @@
 package com.github.fge.jsonpatch;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializable;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
-import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -90,17 +95,36 @@ import java.util.List;
  * <p><b>IMPORTANT NOTE:</b> the JSON Patch is supposed to be VALID when the
  * constructor for this class ({@link JsonPatch#fromJson(JsonNode)} is used.</p>
  */
+@JsonDeserialize(using = JsonPatchDeserializer.class)
 public final class JsonPatch
     implements JsonSerializable, Patch
 {
     private static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPatchMessages.class);
 
+    /*
+     * Member names of values are interned (this is the default, but patches
+     * read by this class rely on it)
+     */
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+        .enable(JsonFactory.Feature.INTERN_FIELD_NAMES).build();
+
     /**
      * List of operations
      */
     private final List<JsonPatchOperation> operations;
 
+    /**
+     * Test operations to check against the input value before applying the
+     * patch
+     */
+    private final List<JsonPatchOperation> preconditions;
+
+    /**
+     * Listener notified of applications of this patch, if any
+     */
+    private final PatchListener listener;
+
     /**
      * Constructor
      *
@@ -113,6 +137,17 @@ public final class JsonPatch
     public JsonPatch(final List<JsonPatchOperation> operations)
     {
         this.operations = Collections.unmodifiableList(new ArrayList<JsonPatchOperation>(operations));
+        preconditions = Collections.emptyList();
+        listener = null;
+    }
+
+    private JsonPatch(final List<JsonPatchOperation> operations,
+        final List<JsonPatchOperation> preconditions,
+        final PatchListener listener)
+    {
+        this.operations = operations;
+        this.preconditions = preconditions;
+        this.listener = listener;
     }
 
     /**
@@ -127,13 +162,220 @@ public final class JsonPatch
         throws IOException
     {
         BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
-        return JacksonUtils.getReader().forType(JsonPatch.class)
-            .readValue(node);
+        return JsonPatchDeserializer.read(node.traverse());
+    }
+
+    /**
+     * Static factory method to build a JSON Patch out of a parser
+     *
+     * <p>Unlike {@link #fromJson(JsonNode)}, the patch is read token by token,
+     * without building a tree for it first; only values of operations are
+     * read as trees.</p>
+     *
+     * <p>The parser must either be positioned on the start of the patch
+     * array, or have no current token. On exit, it is positioned on the end
+     * of the array; it is not closed.</p>
+     *
+     * @param parser the parser
+     * @return a JSON Patch
+     * @throws IOException read error, or input is not a valid JSON patch
+     * @throws NullPointerException input is null
+     */
+    public static JsonPatch fromJson(final JsonParser parser)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(parser, "jsonPatch.nullInput");
+        return JsonPatchDeserializer.read(parser);
+    }
+
+    /**
+     * Static factory method to build a JSON Patch out of an input stream
+     *
+     * <p>The patch is read as with {@link #fromJson(JsonParser)}, and the
+     * stream must contain nothing else. The stream is not closed.</p>
+     *
+     * @param in the input stream
+     * @return a JSON Patch
+     * @throws IOException read error, or input is not a valid JSON patch
+     * @throws NullPointerException input is null
+     */
+    public static JsonPatch fromJson(final InputStream in)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(in, "jsonPatch.nullInput");
+        try (
+            final JsonParser parser = FACTORY.createParser(in)
+        ) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return JsonPatchDeserializer.readFully(parser);
+        }
+    }
+
+    /**
+     * Static factory method to build a JSON Patch out of UTF-8 encoded bytes
+     *
+     * <p>The patch is read as with {@link #fromJson(JsonParser)}, and the
+     * input must contain nothing else.</p>
+     *
+     * @param bytes the bytes
+     * @return a JSON Patch
+     * @throws IOException input is not a valid JSON patch
+     * @throws NullPointerException input is null
+     */
+    public static JsonPatch fromJson(final byte[] bytes)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(bytes, "jsonPatch.nullInput");
+        try (
+            final JsonParser parser = FACTORY.createParser(bytes)
+        ) {
+            return JsonPatchDeserializer.readFully(parser);
+        }
+    }
+
+    /**
+     * Static factory method to build a JSON Patch out of a string
+     *
+     * <p>The patch is read as with {@link #fromJson(JsonParser)}, and the
+     * input must contain nothing else.</p>
+     *
+     * @param json the string
+     * @return a JSON Patch
+     * @throws IOException input is not a valid JSON patch
+     * @throws NullPointerException input is null
+     */
+    public static JsonPatch fromJson(final String json)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(json, "jsonPatch.nullInput");
+        try (
+            final JsonParser parser = FACTORY.createParser(json)
+        ) {
+            return JsonPatchDeserializer.readFully(parser);
+        }
+    }
+
+    /**
+     * Prepare this patch for repeated application
+     *
+     * <p>Before modifying a value, an operation needs to split its JSON
+     * Pointer(s) into a parent pointer and a last reference token, and to
+     * parse this token if it is an array index. Normally this is done each
+     * time the operation is applied; once a patch is compiled, it is done
+     * only once for all of its operations.</p>
+     *
+     * <p>Since this retains more memory per operation, this is not done by
+     * default; you should use it for patches which are applied many times.
+     * Compiling a patch more than once has no further effect. The result of
+     * applying a patch does not depend on whether it is compiled.</p>
+     *
+     * @return this patch, compiled
+     */
+    public JsonPatch compile()
+    {
+        for (final JsonPatchOperation operation: operations)
+            operation.prepare();
+        return this;
+    }
+
+    /**
+     * Return an optimized version of this patch
+     *
+     * <p>The returned patch contains fewer operations, or as many, as this
+     * patch; for any input value, applying it yields the same result as
+     * applying this patch, and it fails to apply, with the same error, if
+     * and only if this patch fails to apply.</p>
+     *
+     * <p>The following operations are eliminated:</p>
+     *
+     * <ul>
+     *     <li>{@code move} operations where the source and destination are
+     *     the same;</li>
+     *     <li>{@code add} or {@code replace} operations whose value is
+     *     overwritten by a later {@code replace} (or {@code add}, if the
+     *     path cannot be an array index) at the same path, or removed by a
+     *     later {@code remove} in the case of {@code replace}; the later
+     *     operation is merged into the earlier one;</li>
+     *     <li>{@code test} operations checking a value just written by an
+     *     {@code add} or {@code replace}.</li>
+     * </ul>
+     *
+     * <p>Operations need not be consecutive, provided that operations
+     * between them can neither affect nor be affected by the value at this
+     * path.</p>
+     *
+     * @return a new, optimized patch
+     */
+    public JsonPatch optimize()
+    {
+        final List<JsonPatchOperation> optimized = Collections
+            .unmodifiableList(PatchOptimizer.optimize(operations));
+        final List<JsonPatchOperation> checked = preconditions.isEmpty()
+            ? preconditions : PatchOptimizer.preconditions(optimized);
+        return new JsonPatch(optimized, checked, listener);
+    }
+
+    /**
+     * Return a version of this patch which checks its preconditions first
+     *
+     * <p>A {@code test} operation can be checked against the input value,
+     * rather than the value being patched, if no operation before it in the
+     * patch can modify the value it tests (see {@link #optimize()} for a
+     * similar analysis). The returned patch checks all such operations before
+     * copying or modifying the input value, and fails right away if one of
+     * them fails.</p>
+     *
+     * <p>This is useful when {@code test} operations are used as
+     * preconditions, for instance for optimistic concurrency control, and
+     * patches are expected to fail often.</p>
+     *
+     * <p>The returned patch applies successfully to a value if and only if
+     * this patch does, with the same result. When both fail, however, the
+     * exception may differ: if an operation before a failed {@code test}
+     * would fail as well, the returned patch reports the failure of the
+     * {@code test}.</p>
+     *
+     * @return a new patch, with the same operations as this one
+     */
+    public JsonPatch failFast()
+    {
+        return new JsonPatch(operations,
+            PatchOptimizer.preconditions(operations), listener);
+    }
+
+    /**
+     * Return a version of this patch which reports to a listener
+     *
+     * <p>Each time the returned patch is applied to a {@link JsonNode}, the
+     * listener receives one {@link OperationEvent} per operation applied,
+     * with its timing and outcome, then one {@link PatchEvent} with the
+     * totals. Operations are then applied strictly one by one, so that each
+     * of them can be timed; the result is the same.</p>
+     *
+     * <p>{@link #failFast() Preconditions} are not reported individually:
+     * if one of them fails, the listener only receives a {@link PatchEvent}.
+     * Streaming applications ({@link #apply(JsonParser, JsonGenerator)}) are
+     * not reported.</p>
+     *
+     * <p>Patches derived from the returned patch (with {@link #optimize()},
+     * {@link #failFast()} or {@link #compile()}) report to the same listener.
+     * The listener plays no part in {@link #equals(Object) equality}.</p>
+     *
+     * @param listener the listener; null for none
+     * @return a new patch, with the same operations as this one
+     */
+    public JsonPatch withListener(final PatchListener listener)
+    {
+        return new JsonPatch(operations, preconditions, listener);
     }
 
     /**
      * Apply this patch to a JSON value
      *
+     * <p>The input value is copied once, and all operations are then applied
+     * to this copy; the input value itself is never modified, whether the
+     * patch applies successfully or not.</p>
+     *
      * @param node the value to apply the patch to
      * @return the patched JSON value
      * @throws JsonPatchException failed to apply patch
@@ -144,17 +386,339 @@ public final class JsonPatch
         throws JsonPatchException
     {
         BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
-        JsonNode ret = node;
-        for (final JsonPatchOperation operation: operations)
-            ret = operation.apply(ret);
+        return applyToCopy(node);
+    }
 
-        return ret;
+    /**
+     * Apply this patch to a copy of a non null JSON value
+     *
+     * @param node the value to apply the patch to
+     * @return the patched JSON value
+     * @throws JsonPatchException failed to apply patch
+     * @see PatchBatch
+     */
+    JsonNode applyToCopy(final JsonNode node)
+        throws JsonPatchException
+    {
+        final PatchMonitor monitor = checkPreconditions(node, false);
+        return applyInContext(new PatchContext(node.deepCopy()), monitor);
+    }
+
+    /**
+     * Apply this patch to a JSON value, reporting failure as a result
+     *
+     * <p>This method applies the patch like {@link #apply(JsonNode)} does,
+     * but a failure to apply the patch is returned rather than thrown: the
+     * returned result then tells the {@link PatchResult#getCode() reason}
+     * for the failure, the {@link PatchResult#getOperationIndex() index} of
+     * the failed operation and the {@link PatchResult#getPointer() pointer}
+     * it failed on.</p>
+     *
+     * <p>Failures of the operations of this package are cheap: the exception
+     * held by the result has no stack trace, and its message is only
+     * computed if asked for. Use this method when failing to apply a patch
+     * is expected, for instance when {@code test} operations are used for
+     * compare-and-set; combined with {@link #failFast()}, such failures are
+     * detected before the input value is copied.</p>
+     *
+     * @param node the value to apply the patch to
+     * @return the result
+     * @throws NullPointerException input is null
+     */
+    public PatchResult tryApply(final JsonNode node)
+    {
+        BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+
+        try {
+            final PatchMonitor monitor = checkPreconditions(node, true);
+            final PatchContext context = new PatchContext(node.deepCopy());
+            context.setStackless();
+            return PatchResult.success(applyInContext(context, monitor));
+        } catch (JsonPatchException e) {
+            return PatchResult.failure(e);
+        }
+    }
+
+    /**
+     * Apply this patch directly to a JSON value owned by the caller
+     *
+     * <p>No copy of the value is made. Use this method only if you own the
+     * value (for instance, if you have just parsed it) and nothing else
+     * refers to it.</p>
+     *
+     * <p>As required by RFC 6902, the patch is applied atomically: while
+     * operations are applied, each change to the value is recorded, along
+     * with the node it removed or replaced, if any. If an operation fails,
+     * all changes are undone in reverse order before the {@link
+     * JsonPatchException} is thrown, and the value is left as it was (down to
+     * the order of object members). This costs far less than copying the
+     * value beforehand, as {@link #apply(JsonNode)} does, as long as most
+     * patches apply successfully.</p>
+     *
+     * @param node the value to patch
+     * @return the patched value; always use it instead of the argument
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException input is null
+     */
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+        final PatchMonitor monitor = checkPreconditions(node, false);
+
+        final PatchContext context = PatchContext.undoable(node);
+        boolean applied = false;
+
+        try {
+            final JsonNode ret = applyInContext(context, monitor);
+            applied = true;
+            return ret;
+        } finally {
+            if (!applied)
+                context.undo();
+        }
+    }
+
+    /**
+     * Apply this patch to a JSON value, and compute the patch undoing it
+     *
+     * <p>The input value is not modified. While operations are applied, all
+     * values they remove or replace are recorded; the inverse patch is built
+     * from these. This is much cheaper than computing the inverse patch with
+     * {@link com.github.fge.jsonpatch.diff.JsonDiff} afterwards, since no
+     * comparison of the whole values is needed.</p>
+     *
+     * <p>The inverse patch contains one operation per elementary change; for
+     * instance, a {@code move} is undone by an {@code add} and a {@code
+     * remove}. Operations which do not modify the value, such as {@code
+     * test}, yield no operation at all.</p>
+     *
+     * @param node the value to apply the patch to
+     * @return the patched value and the inverse patch
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException input is null
+     */
+    public AppliedPatch applyWithInverse(final JsonNode node)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+        final PatchMonitor monitor = checkPreconditions(node, false);
+
+        final PatchContext context
+            = PatchContext.invertible(node.deepCopy());
+        final JsonNode result = applyInContext(context, monitor);
+
+        return new AppliedPatch(result, new JsonPatch(context.inverse()));
+    }
+
+    /**
+     * Apply this patch to a JSON value, sharing unmodified nodes
+     *
+     * <p>The input value is neither modified nor copied in full; instead, only
+     * containers on the path from the root of the value to each modified
+     * location are copied, and the result refers to all other nodes of the
+     * input value. The cost of applying a patch
+     * therefore depends on the depth and width of modified locations, not
+     * on the size of the input value.</p>
+     *
+     * <p>Values inserted by {@code add}, {@code replace} and {@code copy}
+     * operations are shared in the same way: the result refers to the value
+     * of the operation, or to the source node of the copy, until an
+     * operation modifies it. Copying a large value to many locations
+     * therefore costs no memory.</p>
+     *
+     * <p>Since the input and the result share nodes, neither of them should be
+     * modified afterwards. The input is left untouched if the patch fails to
+     * apply.</p>
+     *
+     * @param node the value to apply the patch to
+     * @return the patched JSON value
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException input is null
+     */
+    @Override
+    public JsonNode applyShared(final JsonNode node)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+        final PatchMonitor monitor = checkPreconditions(node, false);
+        return applyInContext(PatchContext.sharing(node), monitor);
+    }
+
+    /**
+     * Apply this patch to a JSON value read from a parser, and write the
+     * result to a generator
+     *
+     * <p>The value is copied from the parser to the generator token by token;
+     * only the parts of the value which operations refer to are read as
+     * trees. This is how you should apply a patch which modifies a few
+     * locations of a very large value.</p>
+     *
+     * <p>Exactly one value is read; if the parser is not positioned on a
+     * token, it is first advanced to the next one. Neither the parser nor the
+     * generator are closed or flushed.</p>
+     *
+     * <p>The result is equal to what {@link #apply(JsonNode)} would return,
+     * except that the order of members of an object may differ when an
+     * operation refers to several members of this object (for instance, a
+     * {@code copy} from one member to another); such members are written
+     * together, where the last of them appears. If a {@link
+     * JsonPatchException} is thrown, the exception is the same as {@link
+     * #apply(JsonNode)} would throw, but what has been written to the
+     * generator is unspecified.</p>
+     *
+     * @param parser the parser to read the value from
+     * @param generator the generator to write the result to
+     * @throws IOException failed to read or write a value
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException one argument is null
+     */
+    public void apply(final JsonParser parser, final JsonGenerator generator)
+        throws IOException, JsonPatchException
+    {
+        BUNDLE.checkNotNull(parser, "jsonPatch.nullInput");
+        BUNDLE.checkNotNull(generator, "common.nullArgument");
+        new PatchStreamer(operations).stream(parser, generator);
+    }
+
+    /*
+     * Check preconditions, if any; if this patch has a listener, return the
+     * monitor reporting this application of the patch, or null otherwise.
+     */
+    private PatchMonitor checkPreconditions(final JsonNode node,
+        final boolean stackless)
+        throws JsonPatchException
+    {
+        final PatchMonitor monitor = listener == null ? null
+            : new PatchMonitor(this, listener);
+
+        if (preconditions.isEmpty())
+            return monitor;
+
+        final PatchContext context = new PatchContext(node);
+        if (stackless)
+            context.setStackless();
+
+        for (final JsonPatchOperation operation: preconditions)
+            try {
+                operation.applyInPlace(context);
+            } catch (JsonPatchException e) {
+                e.atOperation(indexOf(operation));
+                throw monitor == null ? e : monitor.failed(e);
+            }
+
+        return monitor;
+    }
+
+    private int indexOf(final JsonPatchOperation operation)
+    {
+        final int size = operations.size();
+
+        for (int index = 0; index < size; index++)
+            if (operations.get(index) == operation)
+                return index;
+
+        return -1;
+    }
+
+    private JsonNode applyInContext(final PatchContext context,
+        final PatchMonitor monitor)
+        throws JsonPatchException
+    {
+        if (monitor != null)
+            return monitor.apply(operations, context);
+
+        final int size = operations.size();
+        int index = 0;
+
+        try {
+            while (index < size)
+                index = ArraySplice.apply(operations, index, context);
+        } catch (JsonPatchException e) {
+            throw e.atOperation(context.getOperationIndex());
+        }
+
+        return context.getRoot();
+    }
+
+    /**
+     * Write this patch to a generator
+     *
+     * <p>This writes the same JSON as serializing this patch with an {@link
+     * com.fasterxml.jackson.databind.ObjectMapper}, without going through the
+     * mapper configured by the generator, if any. The serialized forms of
+     * operation names and pointers are computed once per operation and
+     * reused for each write, which makes this method suitable for writing
+     * the same patch many times. The generator needs no codec; it is neither
+     * flushed nor closed.</p>
+     *
+     * @param generator the generator
+     * @throws IOException write error
+     * @throws NullPointerException generator is null
+     */
+    public void writeTo(final JsonGenerator generator)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(generator, "common.nullArgument");
+        JsonWriters.WRITER.writeValue(generator, this);
+    }
+
+    /**
+     * Write this patch to an output stream, as UTF-8
+     *
+     * <p>See {@link #writeTo(JsonGenerator)}. The stream is flushed, but not
+     * closed.</p>
+     *
+     * @param out the output stream
+     * @throws IOException write error
+     * @throws NullPointerException stream is null
+     */
+    public void writeTo(final OutputStream out)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(out, "common.nullArgument");
+        try (
+            final JsonGenerator generator = JsonWriters.WRITER.getFactory()
+                .createGenerator(out, JsonEncoding.UTF8)
+        ) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            JsonWriters.WRITER.writeValue(generator, this);
+        }
     }
 
     public final List<JsonPatchOperation> getOperations() {
         return operations;
     }
 
+    /**
+     * Tell whether this patch is equal to another object
+     *
+     * <p>Two patches are equal if they have equal operations, in the same
+     * order, and both check the same {@link #failFast() preconditions}.
+     * Whether a patch is compiled or not does not matter.</p>
+     *
+     * @param obj the other object
+     * @return true if both patches are equal
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof JsonPatch))
+            return false;
+        final JsonPatch other = (JsonPatch) obj;
+        return operations.equals(other.operations)
+            && preconditions.equals(other.preconditions);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return operations.hashCode();
+    }
+
     @Override
     public String toString()
     {
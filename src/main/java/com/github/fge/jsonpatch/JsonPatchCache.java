@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of JSON Patches, keyed by their serialized form
+ *
+ * <p>When the same patches are received over and over again, parsing them
+ * and preparing their JSON Pointers each time is wasted work. Instances of
+ * this class remember the patches read from given bytes, {@link
+ * JsonPatch#compile() compiled}, and return the same instance for the same
+ * bytes. Since patches are immutable, the returned instances can be used
+ * by any number of threads.</p>
+ *
+ * <p>Patches are evicted in least recently used order once there are too
+ * many of them, or once their serialized forms take up too many bytes. Bytes
+ * which fail to parse as a JSON Patch are not cached.</p>
+ *
+ * <p>Instances of this class are thread safe. Patches are parsed outside of
+ * the lock, so two threads missing the same bytes at the same time both
+ * parse them.</p>
+ */
+public final class JsonPatchCache
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final Map<Key, JsonPatch> patches
+        = new LinkedHashMap<Key, JsonPatch>(16, 0.75f, true);
+
+    private long bytes = 0L;
+    private long hits = 0L;
+    private long misses = 0L;
+    private long evictions = 0L;
+
+    private JsonPatchCache(final int maxEntries, final long maxBytes)
+    {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Create a cache holding at most a given number of patches
+     *
+     * @param maxEntries the maximum number of patches
+     * @return a new cache
+     * @throws IllegalArgumentException maxEntries is negative or zero
+     */
+    public static JsonPatchCache withMaxEntries(final int maxEntries)
+    {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maximum number of entries must"
+                + " be strictly positive");
+        return new JsonPatchCache(maxEntries, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a cache holding patches whose serialized forms take up at most a
+     * given number of bytes
+     *
+     * <p>Patches larger than this are never cached.</p>
+     *
+     * @param maxBytes the maximum number of bytes
+     * @return a new cache
+     * @throws IllegalArgumentException maxBytes is negative or zero
+     */
+    public static JsonPatchCache withMaxBytes(final long maxBytes)
+    {
+        if (maxBytes <= 0L)
+            throw new IllegalArgumentException("maximum number of bytes must"
+                + " be strictly positive");
+        return new JsonPatchCache(Integer.MAX_VALUE, maxBytes);
+    }
+
+    /**
+     * Return the patch read from the given bytes
+     *
+     * <p>The array is copied if the patch is added to the cache; the caller
+     * may reuse it afterwards.</p>
+     *
+     * @param patchBytes the JSON Patch, as UTF-8 encoded bytes
+     * @return the patch, compiled
+     * @throws IOException input is not a valid JSON Patch
+     * @throws NullPointerException input is null
+     * @see JsonPatch#fromJson(byte[])
+     */
+    public JsonPatch get(final byte[] patchBytes)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(patchBytes, "jsonPatch.nullInput");
+
+        final Key lookup = new Key(patchBytes);
+        JsonPatch ret;
+
+        synchronized (patches) {
+            ret = patches.get(lookup);
+            if (ret != null) {
+                hits++;
+                return ret;
+            }
+            misses++;
+        }
+
+        ret = JsonPatch.fromJson(patchBytes).compile();
+
+        if (patchBytes.length > maxBytes)
+            return ret;
+
+        final Key key = new Key(patchBytes.clone());
+
+        synchronized (patches) {
+            if (patches.put(key, ret) == null)
+                bytes += patchBytes.length;
+            evict();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Return the number of calls to {@link #get(byte[])} which returned a
+     * cached patch
+     *
+     * @return the number of hits
+     */
+    public long getHitCount()
+    {
+        synchronized (patches) {
+            return hits;
+        }
+    }
+
+    /**
+     * Return the number of calls to {@link #get(byte[])} which had to parse
+     * their input, successfully or not
+     *
+     * @return the number of misses
+     */
+    public long getMissCount()
+    {
+        synchronized (patches) {
+            return misses;
+        }
+    }
+
+    /**
+     * Return the number of patches evicted from this cache so far
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount()
+    {
+        synchronized (patches) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Return the number of patches currently cached
+     *
+     * @return the number of patches
+     */
+    public int size()
+    {
+        synchronized (patches) {
+            return patches.size();
+        }
+    }
+
+    /**
+     * Return the total size of the serialized forms of patches currently
+     * cached
+     *
+     * @return the number of bytes
+     */
+    public long getByteCount()
+    {
+        synchronized (patches) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Remove all patches from this cache
+     *
+     * <p>Statistics are not reset.</p>
+     */
+    public void clear()
+    {
+        synchronized (patches) {
+            patches.clear();
+            bytes = 0L;
+        }
+    }
+
+    /*
+     * Must be called with the lock held
+     */
+    private void evict()
+    {
+        final Iterator<Key> iterator = patches.keySet().iterator();
+
+        while (patches.size() > maxEntries || bytes > maxBytes) {
+            bytes -= iterator.next().bytes.length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Key
+    {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        private Key(final byte[] bytes)
+        {
+            this.bytes = bytes;
+            hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return hashCode == other.hashCode
+                && Arrays.equals(bytes, other.bytes);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming deserializer for JSON Patches
+ *
+ * <p>Operations are read token by token: the {@code op} member is recognized
+ * directly, whatever its position in the operation object, and the operation
+ * is built once all members are read. This avoids Jackson's polymorphic type
+ * handling for {@link JsonPatchOperation}, which buffers all members of an
+ * object preceding its type id, and never builds a tree for anything but
+ * operation values.</p>
+ *
+ * <p>As with the annotations of operation classes, unknown members are
+ * ignored, and if a member appears more than once, the last one wins.</p>
+ *
+ * <p>Patches held in memory in large numbers tend to repeat the same
+ * pointers and member names. Pointers are therefore taken from a {@link
+ * JsonPointerPool}, and member names of values are interned by the parser,
+ * provided that its factory is configured to do so (this is the default, see
+ * {@link com.fasterxml.jackson.core.JsonFactory.Feature#INTERN_FIELD_NAMES}).
+ * </p>
+ *
+ * @see JsonPatch#fromJson(JsonParser)
+ */
+final class JsonPatchDeserializer
+    extends JsonDeserializer<JsonPatch>
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    @Override
+    public JsonPatch deserialize(final JsonParser jp,
+        final DeserializationContext ctxt)
+        throws IOException
+    {
+        return read(jp);
+    }
+
+    /**
+     * Read a JSON Patch from a parser
+     *
+     * <p>The parser must either be positioned on the start of the array, or
+     * have no current token, in which case the next token is read. On exit,
+     * the parser is positioned on the end of the array.</p>
+     *
+     * @param parser the parser
+     * @return the patch
+     * @throws IOException read error, or input is not a valid JSON Patch
+     */
+    static JsonPatch read(final JsonParser parser)
+        throws IOException
+    {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null)
+            token = parser.nextToken();
+        if (token != JsonToken.START_ARRAY)
+            throw error(parser, BUNDLE.getMessage("jsonPatch.notAnArray"));
+
+        final List<JsonPatchOperation> operations
+            = new ArrayList<JsonPatchOperation>();
+
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT)
+                throw error(parser,
+                    BUNDLE.getMessage("jsonPatch.notAnObject"));
+            operations.add(readOperation(parser));
+        }
+
+        return new JsonPatch(operations);
+    }
+
+    /**
+     * Read a JSON Patch from a parser, which must have no content after it
+     *
+     * <p>This is for parsers owned by the caller and created on the whole
+     * input, which must then contain nothing but the patch.</p>
+     *
+     * @param parser the parser
+     * @return the patch
+     * @throws IOException read error, input is not a valid JSON Patch, or is
+     * followed by other content
+     */
+    static JsonPatch readFully(final JsonParser parser)
+        throws IOException
+    {
+        final JsonPatch patch = read(parser);
+        if (parser.nextToken() != null)
+            throw error(parser, BUNDLE.getMessage("jsonPatch.trailingTokens"));
+        return patch;
+    }
+
+    private static JsonPatchOperation readOperation(final JsonParser parser)
+        throws IOException
+    {
+        String op = null;
+        String path = null;
+        String from = null;
+        JsonNode value = null;
+        String name;
+        JsonToken token;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            name = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (name) {
+                case "op":
+                    op = readString(parser, token, name);
+                    break;
+                case "path":
+                    path = readString(parser, token, name);
+                    break;
+                case "from":
+                    from = readString(parser, token, name);
+                    break;
+                case "value":
+                    value = token == JsonToken.VALUE_NULL
+                        ? NullNode.getInstance()
+                        : READER.<JsonNode>readTree(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (op == null)
+            throw missingMember(parser, "op");
+
+        switch (op) {
+            case "add":
+                return AddOperation.withOwnedValue(
+                    pointer(parser, "path", path),
+                    required(parser, "value", value));
+            case "copy":
+                return new CopyOperation(pointer(parser, "from", from),
+                    pointer(parser, "path", path));
+            case "move":
+                return new MoveOperation(pointer(parser, "from", from),
+                    pointer(parser, "path", path));
+            case "remove":
+                return new RemoveOperation(pointer(parser, "path", path));
+            case "replace":
+                return ReplaceOperation.withOwnedValue(
+                    pointer(parser, "path", path),
+                    required(parser, "value", value));
+            case "test":
+                return TestOperation.withOwnedValue(
+                    pointer(parser, "path", path),
+                    required(parser, "value", value));
+            default:
+                throw error(parser,
+                    BUNDLE.printf("jsonPatch.unknownOperation", op));
+        }
+    }
+
+    private static String readString(final JsonParser parser,
+        final JsonToken token, final String name)
+        throws IOException
+    {
+        if (token != JsonToken.VALUE_STRING)
+            throw error(parser, BUNDLE.printf("jsonPatch.notAString", name));
+        return parser.getText();
+    }
+
+    private static JsonPointer pointer(final JsonParser parser,
+        final String name, final String input)
+        throws IOException
+    {
+        required(parser, name, input);
+        try {
+            return JsonPointerPool.get(input);
+        } catch (JsonPointerException e) {
+            throw JsonMappingException.from(parser,
+                BUNDLE.printf("jsonPatch.invalidPointer", name), e);
+        }
+    }
+
+    private static <T> T required(final JsonParser parser, final String name,
+        final T value)
+        throws JsonMappingException
+    {
+        if (value == null)
+            throw missingMember(parser, name);
+        return value;
+    }
+
+    private static JsonMappingException missingMember(
+        final JsonParser parser, final String name)
+    {
+        return error(parser, BUNDLE.printf("jsonPatch.missingMember", name));
+    }
+
+    private static JsonMappingException error(final JsonParser parser,
+        final String message)
+    {
+        return JsonMappingException.from(parser, message);
+    }
+}
@@ -19,16 +19,144 @@
 
 package com.github.fge.jsonpatch;
 
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public final class JsonPatchException
     extends Exception
 {
+    private PatchFailureCode code;
+    /*
+     * JsonPointer is not serializable: it is serialized as its string form,
+     * see writeObject() and readObject()
+     */
+    private transient JsonPointer pointer;
+    private int operationIndex = -1;
+
     public JsonPatchException(final String message)
     {
         super(message);
+        code = PatchFailureCode.OTHER;
+        pointer = null;
     }
 
     public JsonPatchException(final String message, final Throwable cause)
     {
         super(message, cause);
+        code = PatchFailureCode.OTHER;
+        pointer = null;
+    }
+
+    /**
+     * Constructor for failures of operations of this package
+     *
+     * <p>A stackless exception neither fills in its stack trace nor computes
+     * its message until asked for it; see {@link
+     * JsonPatch#tryApply(com.fasterxml.jackson.databind.JsonNode)}.</p>
+     *
+     * @param code the failure code
+     * @param pointer the pointer the failure relates to
+     * @param stackless whether this exception is stackless
+     */
+    JsonPatchException(final PatchFailureCode code, final JsonPointer pointer,
+        final boolean stackless)
+    {
+        super(stackless ? null : code.getMessage(), null, true, !stackless);
+        this.code = code;
+        this.pointer = pointer;
+    }
+
+    /**
+     * Return the reason for this failure
+     *
+     * @return the failure code; {@link PatchFailureCode#OTHER} for failures
+     * not raised by the operations defined in this package
+     */
+    public PatchFailureCode getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Return the JSON Pointer this failure relates to
+     *
+     * <p>This is the path of the failed operation, or its {@code from} if
+     * the value to move or copy does not exist.</p>
+     *
+     * @return the pointer; null if unknown
+     */
+    public JsonPointer getPointer()
+    {
+        return pointer;
+    }
+
+    /**
+     * Return the index of the failed operation in its patch
+     *
+     * @return the index; -1 if unknown, or not applied as part of a {@link
+     * JsonPatch}
+     */
+    public int getOperationIndex()
+    {
+        return operationIndex;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        final String message = super.getMessage();
+        return message == null ? code.getMessage() : message;
+    }
+
+    /*
+     * Record the index of the failed operation, unless already known
+     */
+    JsonPatchException atOperation(final int index)
+    {
+        if (operationIndex < 0)
+            operationIndex = index;
+        return this;
+    }
+
+    /*
+     * Wrap this failure in one with another message, and the same failure
+     * code, pointer and operation index
+     */
+    JsonPatchException withMessage(final String message)
+    {
+        final JsonPatchException ret = new JsonPatchException(message, this);
+        ret.code = code;
+        ret.pointer = pointer;
+        ret.operationIndex = operationIndex;
+        return ret;
+    }
+
+    private void writeObject(final ObjectOutputStream out)
+        throws IOException
+    {
+        out.defaultWriteObject();
+        out.writeObject(pointer == null ? null : pointer.toString());
+    }
+
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        final String input = (String) in.readObject();
+        if (input == null)
+            return;
+        try {
+            pointer = new JsonPointer(input);
+        } catch (JsonPointerException e) {
+            final InvalidObjectException exception
+                = new InvalidObjectException("invalid JSON Pointer: " + input);
+            exception.initCause(e);
+            throw exception;
+        }
     }
 }
@@ -22,12 +22,20 @@ package com.github.fge.jsonpatch;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializable;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.fasterxml.jackson.annotation.JsonSubTypes.*;
 import static com.fasterxml.jackson.annotation.JsonTypeInfo.*;
 
@@ -62,6 +70,20 @@ public abstract class JsonPatchOperation
     protected static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPatchMessages.class);
 
+    static final SerializableString OP = new SerializedString("op");
+    static final SerializableString PATH = new SerializedString("path");
+    static final SerializableString FROM = new SerializedString("from");
+    static final SerializableString VALUE = new SerializedString("value");
+
+    private static final Map<String, SerializableString> OPERATION_NAMES
+        = new HashMap<String, SerializableString>();
+
+    static {
+        for (final String name: Arrays.asList("add", "copy", "move",
+            "remove", "replace", "test"))
+            OPERATION_NAMES.put(name, new SerializedString(name));
+    }
+
     protected final String op;
 
     /*
@@ -72,6 +94,17 @@ public abstract class JsonPatchOperation
      */
     protected final JsonPointer path;
 
+    /*
+     * Pre-split form of path; only set once the operation is prepared, see
+     * prepare().
+     */
+    private PreparedPointer preparedPath = null;
+
+    /*
+     * Serialized form of path, computed on first use; see serializedPath().
+     */
+    private SerializableString serializedPath = null;
+
     /**
      * Constructor
      *
@@ -94,6 +127,110 @@ public abstract class JsonPatchOperation
     public abstract JsonNode apply(final JsonNode node)
         throws JsonPatchException;
 
+    /**
+     * Apply this operation to the value held by a patch context
+     *
+     * <p>Unlike {@link #apply(JsonNode)}, this method modifies the value
+     * directly, as allowed by the context. This is what {@link JsonPatch}
+     * uses so that the value to patch is copied at most once for the whole
+     * patch, not once per operation.</p>
+     *
+     * <p>The default implementation delegates to {@link #apply(JsonNode)}.
+     * Since we cannot know whether the result shares nodes with anything
+     * else, it is marked as shared.</p>
+     *
+     * @param context the patch context
+     * @throws JsonPatchException operation failed to apply to this value
+     */
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
+    {
+        final JsonNode ret = apply(context.getRoot());
+        context.setRoot(ret);
+        context.share(ret);
+    }
+
+    /**
+     * Apply this operation to a copy of a JSON value
+     *
+     * @param node the value to patch
+     * @return the patched copy
+     * @throws JsonPatchException operation failed to apply to this value
+     */
+    final JsonNode applyToCopy(final JsonNode node)
+        throws JsonPatchException
+    {
+        final PatchContext context = new PatchContext(node.deepCopy());
+        applyInPlace(context);
+        return context.getRoot();
+    }
+
+    /**
+     * Prepare this operation for repeated application
+     *
+     * <p>Operations are immutable and the prepared state is computed from
+     * immutable data, so this is safe to call at any time, from any thread.
+     * </p>
+     *
+     * @see JsonPatch#compile()
+     */
+    void prepare()
+    {
+        if (preparedPath == null)
+            preparedPath = new PreparedPointer(path);
+    }
+
+    /**
+     * Return the pre-split form of this operation's path
+     *
+     * <p>If this operation has not been prepared, a new instance is computed
+     * for each call.</p>
+     *
+     * @return the prepared path
+     */
+    final PreparedPointer preparedPath()
+    {
+        final PreparedPointer ret = preparedPath;
+        return ret != null ? ret : new PreparedPointer(path);
+    }
+
+    /**
+     * Write the {@code op} and {@code path} members of this operation
+     *
+     * <p>The serialized forms of member names, of the operation name and of
+     * the path are computed once, and reused for each serialization; Jackson
+     * also caches their quoted and encoded forms.</p>
+     *
+     * @param jgen the generator
+     * @throws IOException write error
+     */
+    final void writeOpAndPath(final JsonGenerator jgen)
+        throws IOException
+    {
+        SerializableString name = OPERATION_NAMES.get(op);
+        if (name == null)
+            name = new SerializedString(op);
+
+        jgen.writeFieldName(OP);
+        jgen.writeString(name);
+        jgen.writeFieldName(PATH);
+        jgen.writeString(serializedPath());
+    }
+
+    /*
+     * Racy single check: SerializedString instances are immutable, so at
+     * worst the string is computed more than once.
+     */
+    private SerializableString serializedPath()
+    {
+        SerializableString ret = serializedPath;
+        if (ret == null) {
+            ret = new SerializedString(path.toString());
+            serializedPath = ret;
+        }
+        return ret;
+    }
+
     public final String getOp() {
         return op;
     }
@@ -102,6 +239,33 @@ public abstract class JsonPatchOperation
         return path;
     }
 
+    /**
+     * Tell whether this operation is equal to another object
+     *
+     * <p>Two operations are equal if they are of the same class and have the
+     * same arguments; JSON values are compared with {@link
+     * JsonNode#equals(Object)}.</p>
+     *
+     * @param obj the other object
+     * @return true if both operations are equal
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != getClass())
+            return false;
+        final JsonPatchOperation other = (JsonPatchOperation) obj;
+        return op.equals(other.op) && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * op.hashCode() + path.hashCode();
+    }
+
     @Override
     public abstract String toString();
 }
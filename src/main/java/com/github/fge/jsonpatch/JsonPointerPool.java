@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of JSON Pointers, shared by all patches read from JSON
+ *
+ * <p>A JSON Pointer is a list of reference tokens and token resolvers, which
+ * takes up several times the memory of its string form. Patches tend to use
+ * the same few pointers over and over again; since pointers are immutable,
+ * patches read with {@link JsonPatchDeserializer} share a single instance
+ * for each pointer string.</p>
+ *
+ * <p>Like the interning of names in Jackson, the pool is bounded in a crude
+ * but cheap way: it is emptied when it grows past a given number of
+ * entries. Pointers already handed out stay valid.</p>
+ */
+final class JsonPointerPool
+{
+    private static final int MAX_ENTRIES = 10000;
+
+    private static final ConcurrentMap<String, JsonPointer> POINTERS
+        = new ConcurrentHashMap<String, JsonPointer>(256);
+
+    private JsonPointerPool()
+    {
+    }
+
+    /**
+     * Return the JSON Pointer for a given string
+     *
+     * @param input the string
+     * @return the pointer
+     * @throws JsonPointerException input is not a valid JSON Pointer
+     */
+    static JsonPointer get(final String input)
+        throws JsonPointerException
+    {
+        JsonPointer ret = POINTERS.get(input);
+        if (ret != null)
+            return ret;
+
+        ret = new JsonPointer(input);
+        if (POINTERS.size() >= MAX_ENTRIES)
+            POINTERS.clear();
+
+        final JsonPointer previous = POINTERS.putIfAbsent(input, ret);
+        return previous != null ? previous : ret;
+    }
+}
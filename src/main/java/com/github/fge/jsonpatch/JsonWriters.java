@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The writer used by all classes of this package which write JSON values
+ *
+ * <p>Patches, patched values and streamed values are all written with the
+ * same writer, so that they are formatted the same way.</p>
+ *
+ * <p>This is not {@code JacksonUtils.newMapper()}: its configuration would be
+ * applied to generators passed in by users. Generators are not flushed after
+ * each value; callers flush them when done.</p>
+ */
+final class JsonWriters
+{
+    static final ObjectWriter WRITER = new ObjectMapper().writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private JsonWriters()
+    {
+    }
+}
@@ -41,6 +41,11 @@ import com.github.fge.jackson.jsonpointer.JsonPointer;
  * <p>It is an error condition if {@code from} does not point to a JSON value.
  * </p>
  *
+ * <p>The value is detached from its original location and attached to its
+ * new location as is; it is never copied, except by {@link
+ * JsonPatch#applyWithInverse(JsonNode)}, which needs the original value to
+ * build the inverse patch.</p>
+ *
  * <p>The specification adds another rule that the {@code from} path must not be
  * an immediate parent of {@code path}. Unfortunately, that doesn't really work.
  * Consider this patch:</p>
@@ -75,15 +80,26 @@ public final class MoveOperation
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
+    {
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
     {
         if (from.equals(path))
-            return node.deepCopy();
-        final JsonNode movedNode = from.path(node);
+            return;
+        final JsonNode movedNode = context.get(from);
         if (movedNode.isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchPath"));
-        final JsonPatchOperation remove = new RemoveOperation(from);
-        final JsonPatchOperation add = new AddOperation(path, movedNode);
-        return add.apply(remove.apply(node));
+            throw context.failure(PatchFailureCode.NO_SUCH_PATH, from);
+        /*
+         * Once detached, the moved node is not referenced from the value
+         * anymore: unless the context requires otherwise, it can be attached
+         * at its new location as is.
+         */
+        RemoveOperation.removeValue(context, preparedFrom());
+        AddOperation.addValue(context, preparedPath(),
+            context.moved(movedNode));
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+import java.util.Iterator;
+
+/**
+ * Event sent to a {@link PatchListener} for one operation of a patch
+ *
+ * <p>Pointer depth and value size are computed on demand.</p>
+ */
+public final class OperationEvent
+{
+    private final JsonPatch patch;
+    private final int index;
+    private final long nanos;
+    private final JsonPatchException failure;
+
+    OperationEvent(final JsonPatch patch, final int index, final long nanos,
+        final JsonPatchException failure)
+    {
+        this.patch = patch;
+        this.index = index;
+        this.nanos = nanos;
+        this.failure = failure;
+    }
+
+    /**
+     * Return the patch this operation belongs to
+     *
+     * @return the patch
+     */
+    public JsonPatch getPatch()
+    {
+        return patch;
+    }
+
+    /**
+     * Return the index of the operation in the patch
+     *
+     * @return the index, starting from 0
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Return the operation
+     *
+     * @return the operation
+     */
+    public JsonPatchOperation getOperation()
+    {
+        return patch.getOperations().get(index);
+    }
+
+    /**
+     * Return the name of the operation ({@code add}, {@code remove}, etc)
+     *
+     * @return the name of the operation
+     */
+    public String getOp()
+    {
+        return getOperation().op;
+    }
+
+    /**
+     * Return the number of reference tokens of the path of the operation
+     *
+     * @return the depth of the path; 0 for the root of the value
+     */
+    public int getPointerDepth()
+    {
+        final Iterator<TokenResolver<JsonNode>> iterator
+            = getOperation().path.iterator();
+        int ret = 0;
+
+        for (; iterator.hasNext(); iterator.next())
+            ret++;
+
+        return ret;
+    }
+
+    /**
+     * Return the size of the value of the operation, as a number of nodes
+     *
+     * <p>The size of a scalar value is 1; the size of an array or object is
+     * 1 plus the size of its elements or member values.</p>
+     *
+     * @return the size; -1 if the operation has no value (this is the case
+     * of {@code remove}, {@code move} and {@code copy})
+     */
+    public int getValueSize()
+    {
+        final JsonPatchOperation operation = getOperation();
+
+        return operation instanceof PathValueOperation
+            ? size(((PathValueOperation) operation).value) : -1;
+    }
+
+    /**
+     * Return the time it took to apply the operation
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * Tell whether the operation applied successfully
+     *
+     * @return true on success
+     */
+    public boolean isSuccess()
+    {
+        return failure == null;
+    }
+
+    /**
+     * Return the reason why the operation failed to apply
+     *
+     * @return the exception; null if the operation applied successfully
+     */
+    public JsonPatchException getFailure()
+    {
+        return failure;
+    }
+
+    private static int size(final JsonNode node)
+    {
+        int ret = 1;
+
+        for (final JsonNode child: node)
+            ret += size(child);
+
+        return ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "operation " + index + " (" + getOp() + "): "
+            + (failure == null ? "success" : failure.getMessage()) + ", "
+            + nanos + " ns";
+    }
+}
@@ -5,4 +5,36 @@ import com.fasterxml.jackson.databind.JsonNode;
 public interface Patch {
 
     JsonNode apply(JsonNode node) throws JsonPatchException;
+
+    /**
+     * Apply this patch directly to a JSON value owned by the caller
+     *
+     * <p>Unlike {@link #apply(JsonNode)}, no defensive copy of the value is
+     * made: containers of the value are modified directly. Always use the
+     * returned value, which may not be the same instance as the argument
+     * (for instance, when the whole value is replaced).</p>
+     *
+     * <p>If the patch fails to apply, the value is left as it was.</p>
+     *
+     * @param node the value to patch
+     * @return the patched value
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException input is null
+     */
+    JsonNode applyInPlace(JsonNode node) throws JsonPatchException;
+
+    /**
+     * Apply this patch to a JSON value, sharing unmodified nodes
+     *
+     * <p>The input value is not modified; the result is built by copying only
+     * the containers which the patch modifies, and refers to all other nodes
+     * of the input value. Neither value should therefore be modified
+     * afterwards.</p>
+     *
+     * @param node the value to patch
+     * @return the patched value
+     * @throws JsonPatchException failed to apply patch
+     * @throws NullPointerException input is null
+     */
+    JsonNode applyShared(JsonNode node) throws JsonPatchException;
 }
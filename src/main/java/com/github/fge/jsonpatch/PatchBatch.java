@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Apply one patch to many JSON values in parallel
+ *
+ * <p>Patches are immutable, and can therefore be applied from any number of
+ * threads at the same time. This class splits its input (a list of values, or
+ * a file of newline delimited JSON values) into chunks, and submits one task
+ * per chunk to an {@link Executor}.</p>
+ *
+ * <p>A {@link JsonPatch} is {@link JsonPatch#compile() compiled} before being
+ * applied.</p>
+ */
+public final class PatchBatch
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private static final ObjectReader READER = JacksonUtils.getReader()
+        .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+    /*
+     * Size of the chunks a file is split into, before adjusting to line
+     * boundaries
+     */
+    private static final long CHUNK_SIZE = 8L << 20;
+
+    /*
+     * Several chunks per processor, so that a few slow values do not keep
+     * all other processors idle at the end of the batch.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    private PatchBatch()
+    {
+    }
+
+    /**
+     * Apply a patch to a list of JSON values
+     *
+     * <p>Values are not modified; each result is obtained as if by calling
+     * {@link Patch#apply(JsonNode)}.</p>
+     *
+     * <p>The returned list has one result per value, in the same order as
+     * the values. A value to which the patch fails to apply does not affect
+     * any other value.</p>
+     *
+     * <p>If the executor rejects a task, this task is run by the calling
+     * thread.</p>
+     *
+     * @param patch the patch to apply
+     * @param nodes the values to patch
+     * @param executor the executor to run tasks with
+     * @return the list of results
+     * @throws InterruptedException interrupted while waiting for tasks
+     * @throws NullPointerException one argument, or one value, is null
+     */
+    public static List<PatchResult> applyAll(final Patch patch,
+        final List<JsonNode> nodes, final Executor executor)
+        throws InterruptedException
+    {
+        BUNDLE.checkNotNull(patch, "common.nullArgument");
+        BUNDLE.checkNotNull(nodes, "common.nullArgument");
+        BUNDLE.checkNotNull(executor, "common.nullArgument");
+
+        final JsonNode[] inputs = nodes.toArray(new JsonNode[nodes.size()]);
+        for (final JsonNode node: inputs)
+            BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+
+        if (patch instanceof JsonPatch)
+            ((JsonPatch) patch).compile();
+
+        final PatchResult[] results = new PatchResult[inputs.length];
+        final int chunks = Math.min(inputs.length, CHUNKS_PER_PROCESSOR
+            * Runtime.getRuntime().availableProcessors());
+        final CountDownLatch latch = new CountDownLatch(chunks);
+        final AtomicReference<Throwable> error
+            = new AtomicReference<Throwable>();
+
+        Runnable task;
+
+        for (int i = 0; i < chunks; i++) {
+            task = new Chunk(patch, inputs, results,
+                (int) ((long) inputs.length * i / chunks),
+                (int) ((long) inputs.length * (i + 1) / chunks), latch, error);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ignored) {
+                task.run();
+            }
+        }
+
+        latch.await();
+
+        final Throwable t = error.get();
+        if (t instanceof Error)
+            throw (Error) t;
+        if (t != null)
+            throw (RuntimeException) t;
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Apply a patch to each JSON value of a newline delimited JSON file
+     *
+     * <p>The file is memory mapped, and split into chunks at line
+     * boundaries. Each line must contain one JSON value; blank lines are
+     * ignored. Patched values are written to the output in the order of the
+     * input, one per line; values removed by the patch (for instance, by a
+     * {@code remove} operation with an empty path) are not written.</p>
+     *
+     * <p>Since values are read from the file, the patch is applied to them
+     * in place. Chunks are written to the output as soon as they are ready,
+     * and the number of chunks in memory is bounded, whatever the size of the
+     * file.</p>
+     *
+     * <p>Processing stops at the first value which cannot be read or patched;
+     * in this case, what has been written to the output is unspecified. The
+     * output stream is neither flushed nor closed.</p>
+     *
+     * <p>If the executor rejects a task, this task is run by the calling
+     * thread.</p>
+     *
+     * @param patch the patch to apply
+     * @param input the path to the file to read
+     * @param output the output stream to write patched values to
+     * @param executor the executor to run tasks with
+     * @return the number of values read
+     * @throws IOException failed to read the file, a value or to write output
+     * @throws JsonPatchException failed to apply the patch to a value
+     * @throws InterruptedException interrupted while waiting for tasks
+     * @throws NullPointerException one argument is null
+     */
+    public static long applyToLines(final Patch patch, final Path input,
+        final OutputStream output, final Executor executor)
+        throws IOException, JsonPatchException, InterruptedException
+    {
+        return applyToLines(patch, input, output, executor, CHUNK_SIZE);
+    }
+
+    static long applyToLines(final Patch patch, final Path input,
+        final OutputStream output, final Executor executor,
+        final long chunkSize)
+        throws IOException, JsonPatchException, InterruptedException
+    {
+        BUNDLE.checkNotNull(patch, "common.nullArgument");
+        BUNDLE.checkNotNull(input, "common.nullArgument");
+        BUNDLE.checkNotNull(output, "common.nullArgument");
+        BUNDLE.checkNotNull(executor, "common.nullArgument");
+
+        if (patch instanceof JsonPatch)
+            ((JsonPatch) patch).compile();
+
+        final int window = 2 * Runtime.getRuntime().availableProcessors();
+        final Deque<FutureTask<Lines>> pending
+            = new ArrayDeque<FutureTask<Lines>>(window);
+
+        long records = 0L;
+
+        try (
+            final FileChannel channel = FileChannel.open(input,
+                StandardOpenOption.READ)
+        ) {
+            final long size = channel.size();
+            long start = 0L, end;
+            FutureTask<Lines> task;
+
+            while (start < size) {
+                end = lineEnd(channel, Math.min(size, start + chunkSize), size);
+                if (end - start > Integer.MAX_VALUE)
+                    throw new IOException(BUNDLE.printf(
+                        "jsonPatch.recordTooLarge", start));
+                task = new FutureTask<Lines>(new Lines(patch, start,
+                    channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        end - start)));
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException ignored) {
+                    task.run();
+                }
+                pending.add(task);
+                if (pending.size() == window)
+                    records += write(pending.remove(), output);
+                start = end;
+            }
+
+            while (!pending.isEmpty())
+                records += write(pending.remove(), output);
+        } finally {
+            for (final FutureTask<Lines> task: pending)
+                task.cancel(true);
+        }
+
+        return records;
+    }
+
+    /*
+     * Return the offset following the first newline at or after position - 1,
+     * or the size of the file if there is none.
+     */
+    private static long lineEnd(final FileChannel channel, final long position,
+        final long size)
+        throws IOException
+    {
+        if (position >= size)
+            return size;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position - 1;
+        int read;
+
+        while ((read = channel.read(buffer, offset)) > 0) {
+            for (int i = 0; i < read; i++)
+                if (buffer.get(i) == '\n')
+                    return offset + i + 1;
+            offset += read;
+            buffer.clear();
+        }
+
+        return size;
+    }
+
+    private static long write(final FutureTask<Lines> task,
+        final OutputStream output)
+        throws IOException, JsonPatchException, InterruptedException
+    {
+        final Lines lines;
+
+        try {
+            lines = task.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof JsonPatchException)
+                throw (JsonPatchException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw (RuntimeException) cause;
+        }
+
+        lines.output.writeTo(output);
+        return lines.records;
+    }
+
+    private static PatchResult applyOne(final Patch patch, final JsonNode node)
+    {
+        try {
+            final JsonNode ret = patch instanceof JsonPatch
+                ? ((JsonPatch) patch).applyToCopy(node)
+                : patch.apply(node);
+            return PatchResult.success(ret);
+        } catch (JsonPatchException e) {
+            return PatchResult.failure(e);
+        }
+    }
+
+    private static final class Chunk
+        implements Runnable
+    {
+        private final Patch patch;
+        private final JsonNode[] inputs;
+        private final PatchResult[] results;
+        private final int start;
+        private final int end;
+        private final CountDownLatch latch;
+        private final AtomicReference<Throwable> error;
+
+        private Chunk(final Patch patch, final JsonNode[] inputs,
+            final PatchResult[] results, final int start, final int end,
+            final CountDownLatch latch, final AtomicReference<Throwable> error)
+        {
+            this.patch = patch;
+            this.inputs = inputs;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.latch = latch;
+            this.error = error;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                for (int i = start; i < end && error.get() == null; i++)
+                    results[i] = applyOne(patch, inputs[i]);
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+            } catch (Error e) {
+                error.compareAndSet(null, e);
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+
+    /*
+     * Patch the lines of one chunk of a file
+     */
+    private static final class Lines
+        implements Callable<Lines>
+    {
+        private final Patch patch;
+        private final long offset;
+        private final MappedByteBuffer buffer;
+        private final ByteArrayOutputStream output;
+        private long records = 0L;
+
+        private Lines(final Patch patch, final long offset,
+            final MappedByteBuffer buffer)
+        {
+            this.patch = patch;
+            this.offset = offset;
+            this.buffer = buffer;
+            output = new ByteArrayOutputStream(buffer.capacity());
+        }
+
+        @Override
+        public Lines call()
+            throws IOException, JsonPatchException
+        {
+            final int limit = buffer.limit();
+
+            try (
+                final JsonGenerator generator
+                    = JsonWriters.WRITER.getFactory().createGenerator(output)
+            ) {
+                generator.setRootValueSeparator(null);
+                int start = 0;
+                for (int i = 0; i <= limit; i++) {
+                    if (i < limit && buffer.get(i) != '\n')
+                        continue;
+                    if (!isBlank(start, i)) {
+                        patchLine(generator, start, i);
+                        records++;
+                    }
+                    start = i + 1;
+                }
+            }
+
+            return this;
+        }
+
+        private void patchLine(final JsonGenerator generator, final int start,
+            final int end)
+            throws IOException, JsonPatchException
+        {
+            final ByteBuffer line = buffer.duplicate();
+            line.limit(end);
+            line.position(start);
+
+            final JsonNode node;
+            final JsonNode result;
+
+            try {
+                node = READER.readTree(new ByteBufferBackedInputStream(line));
+            } catch (JsonProcessingException e) {
+                throw new IOException(BUNDLE.printf("jsonPatch.recordFailure",
+                    offset + start, e.getOriginalMessage()), e);
+            }
+
+            try {
+                result = patch.applyInPlace(node);
+            } catch (JsonPatchException e) {
+                throw e.withMessage(BUNDLE.printf("jsonPatch.recordFailure",
+                    offset + start, e.getMessage()));
+            }
+
+            if (result.isMissingNode())
+                return;
+
+            JsonWriters.WRITER.writeValue(generator, result);
+            generator.writeRaw('\n');
+        }
+
+        private boolean isBlank(final int start, final int end)
+        {
+            byte b;
+
+            for (int i = start; i < end; i++) {
+                b = buffer.get(i);
+                if (b != ' ' && b != '\t' && b != '\r')
+                    return false;
+            }
+            return true;
+        }
+    }
+}
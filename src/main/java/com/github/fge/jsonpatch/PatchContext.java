@@ -0,0 +1,698 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The JSON value being modified by a patch
+ *
+ * <p>Operations read from and write to the value through an instance of this
+ * class, and never modify a container directly.</p>
+ *
+ * <p>This allows some nodes of the value to be marked as <i>shared</i>, that
+ * is, referenced from somewhere else than this value (for instance, from the
+ * original, unpatched value). Such nodes are never modified; instead, when a
+ * container needs to be updated, all shared containers from the root of the
+ * value down to this container are replaced with shallow copies of
+ * themselves. Nodes which have not been marked as shared are modified
+ * directly.</p>
+ *
+ * <p>Containers are modified using the methods of this class, which can
+ * record each change so as to be able to {@link #undo()} all changes later.
+ * </p>
+ *
+ * <p>Finally, the nodes along the last pointer resolved are remembered.
+ * Operations of a patch often refer to locations close to each other (for
+ * instance, several members of a same deeply nested object); only tokens
+ * following the prefix a pointer has in common with the last one then need
+ * to be resolved.</p>
+ */
+final class PatchContext
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    private JsonNode root;
+
+    /*
+     * Shared nodes, by identity; null until a node is marked as shared.
+     */
+    private Set<JsonNode> shared = null;
+
+    /*
+     * Whether values copied within the value are shared rather than copied
+     */
+    private boolean sharing = false;
+
+    /*
+     * Whether failures are reported with stackless exceptions
+     */
+    private boolean stackless = false;
+
+    /*
+     * Index, in its patch, of the operation being applied
+     */
+    private int operationIndex = -1;
+
+    /*
+     * Changes made so far, in order; null if changes are not recorded.
+     */
+    private List<Change> changes = null;
+
+    /*
+     * Whether moved values are copied, see moved()
+     */
+    private boolean copyMoved = false;
+
+    /*
+     * Nodes along the last pointer resolved: nodes.get(0) is the root, and
+     * nodes.get(i + 1) is the child of nodes.get(i) designated by
+     * tokens.get(i). Empty if nothing is known yet.
+     */
+    private final List<TokenResolver<JsonNode>> tokens
+        = new ArrayList<TokenResolver<JsonNode>>();
+    private final List<JsonNode> nodes = new ArrayList<JsonNode>();
+
+    /*
+     * Depth of the node returned by the last call to resolve()
+     */
+    private int resolvedDepth;
+
+    /**
+     * Create a context for a value which may be modified directly
+     *
+     * @param root the value to patch
+     */
+    PatchContext(final JsonNode root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Create a context for a value which must not be modified
+     *
+     * <p>Patching the value will produce a new value, which will share all
+     * nodes unaffected by the patch with the original value.</p>
+     *
+     * @param root the value to patch
+     * @return a new context
+     */
+    static PatchContext sharing(final JsonNode root)
+    {
+        final PatchContext ret = new PatchContext(root);
+        ret.share(root);
+        ret.sharing = true;
+        return ret;
+    }
+
+    /**
+     * Create a context for a value which may be modified directly, and
+     * record changes so that they can be undone
+     *
+     * @param root the value to patch
+     * @return a new context
+     * @see #undo()
+     */
+    static PatchContext undoable(final JsonNode root)
+    {
+        final PatchContext ret = new PatchContext(root);
+        ret.changes = new ArrayList<Change>();
+        return ret;
+    }
+
+    /**
+     * Create a context for a value which may be modified directly, and
+     * record changes so that an inverse patch can be computed
+     *
+     * <p>Unlike {@link #undoable(JsonNode)}, moved values are copied: see
+     * {@link #moved(JsonNode)}.</p>
+     *
+     * @param root the value to patch
+     * @return a new context
+     * @see #inverse()
+     */
+    static PatchContext invertible(final JsonNode root)
+    {
+        final PatchContext ret = undoable(root);
+        ret.copyMoved = true;
+        return ret;
+    }
+
+    /**
+     * Make failures raised through this context stackless
+     *
+     * <p>See {@link #failure(PatchFailureCode, JsonPointer)}.</p>
+     */
+    void setStackless()
+    {
+        stackless = true;
+    }
+
+    /**
+     * Build the exception reporting the failure of an operation
+     *
+     * <p>If the context is {@link #setStackless() stackless}, the exception
+     * has no stack trace, and its message is only computed on demand.</p>
+     *
+     * @param code the failure code
+     * @param pointer the pointer the failure relates to
+     * @return the exception, for the caller to throw
+     */
+    JsonPatchException failure(final PatchFailureCode code,
+        final JsonPointer pointer)
+    {
+        return new JsonPatchException(code, pointer, stackless);
+    }
+
+    int getOperationIndex()
+    {
+        return operationIndex;
+    }
+
+    void setOperationIndex(final int operationIndex)
+    {
+        this.operationIndex = operationIndex;
+    }
+
+    JsonNode getRoot()
+    {
+        return root;
+    }
+
+    void setRoot(final JsonNode root)
+    {
+        reset();
+        if (changes != null)
+            changes.add(new Change(Change.Kind.ROOT, null, null, null,
+                -1, this.root));
+        this.root = root;
+    }
+
+    /**
+     * Add a member to an object, or replace its value
+     *
+     * @param parent pointer to the object, which must exist
+     * @param name the member name
+     * @param value the new value
+     */
+    void putMember(final JsonPointer parent, final String name,
+        final JsonNode value)
+    {
+        final ObjectNode object = (ObjectNode) container(parent);
+        final JsonNode old = object.replace(name, value);
+
+        if (changes != null)
+            changes.add(new Change(Change.Kind.PUT_MEMBER, object, parent,
+                name, -1, old));
+    }
+
+    /**
+     * Remove a member from an object
+     *
+     * @param parent pointer to the object, which must exist
+     * @param name the member name, which must exist
+     */
+    void removeMember(final JsonPointer parent, final String name)
+    {
+        final ObjectNode object = (ObjectNode) container(parent);
+
+        if (changes == null) {
+            object.remove(name);
+            return;
+        }
+
+        /*
+         * Remember the position of the member, so that undoing the change
+         * restores the order of members
+         */
+        final Iterator<String> names = object.fieldNames();
+        int position = 0;
+        while (!names.next().equals(name))
+            position++;
+
+        changes.add(new Change(Change.Kind.REMOVE_MEMBER, object, parent,
+            name, position, object.remove(name)));
+    }
+
+    /**
+     * Insert an element into an array
+     *
+     * @param parent pointer to the array, which must exist
+     * @param index the index, between 0 and the size of the array
+     * @param value the element to insert
+     */
+    void insertElement(final JsonPointer parent, final int index,
+        final JsonNode value)
+    {
+        final ArrayNode array = (ArrayNode) container(parent);
+        array.insert(index, value);
+
+        if (changes != null)
+            changes.add(new Change(Change.Kind.INSERT_ELEMENT, array, parent,
+                null, index, null));
+    }
+
+    /**
+     * Replace an element of an array
+     *
+     * @param parent pointer to the array, which must exist
+     * @param index the index of an existing element
+     * @param value the new element
+     */
+    void setElement(final JsonPointer parent, final int index,
+        final JsonNode value)
+    {
+        final ArrayNode array = (ArrayNode) container(parent);
+        final JsonNode old = array.set(index, value);
+
+        if (changes != null)
+            changes.add(new Change(Change.Kind.SET_ELEMENT, array, parent,
+                null, index, old));
+    }
+
+    /**
+     * Remove an element from an array
+     *
+     * @param parent pointer to the array, which must exist
+     * @param index the index of an existing element
+     */
+    void removeElement(final JsonPointer parent, final int index)
+    {
+        final ArrayNode array = (ArrayNode) container(parent);
+        final JsonNode old = array.remove(index);
+
+        if (changes != null)
+            changes.add(new Change(Change.Kind.REMOVE_ELEMENT, array, parent,
+                null, index, old));
+    }
+
+    /**
+     * Apply a run of insertions and removals to an array at once
+     *
+     * <p>The array is rebuilt from the elements computed by the splice;
+     * changes are recorded as if each insertion and removal had been made in
+     * turn.</p>
+     *
+     * @param parent pointer to the array, which must exist
+     * @param splice the splice
+     */
+    void spliceElements(final JsonPointer parent, final ArraySplice splice)
+    {
+        final ArrayNode array = (ArrayNode) container(parent);
+        final List<JsonNode> elements = splice.elements(array);
+
+        array.removeAll();
+        array.addAll(elements);
+
+        if (changes == null)
+            return;
+
+        for (final ArraySplice.Step step: splice.steps())
+            changes.add(step.insert
+                ? new Change(Change.Kind.INSERT_ELEMENT, array, parent, null,
+                    step.index, null)
+                : new Change(Change.Kind.REMOVE_ELEMENT, array, parent, null,
+                    step.index, step.value));
+    }
+
+    /**
+     * Undo all changes made so far, in reverse order
+     *
+     * <p>This only works if this context was created with {@link
+     * #undoable(JsonNode)}. Nodes removed or replaced by changes are not
+     * copied but kept as is; this is safe since operations never modify a
+     * node once it is detached from the value.</p>
+     */
+    void undo()
+    {
+        reset();
+        for (int i = changes.size() - 1; i >= 0; i--)
+            changes.get(i).undo(this);
+        changes.clear();
+    }
+
+    /**
+     * Return a list of operations undoing all changes made so far
+     *
+     * <p>This only works if this context was created with {@link
+     * #invertible(JsonNode)}. Applying these operations to the current value
+     * yields a value equal to the original one, except for the order of
+     * object members.</p>
+     *
+     * @return the list of operations, in the order they must be applied
+     */
+    List<JsonPatchOperation> inverse()
+    {
+        final List<JsonPatchOperation> ret
+            = new ArrayList<JsonPatchOperation>(changes.size());
+
+        for (int i = changes.size() - 1; i >= 0; i--)
+            ret.add(changes.get(i).inverse());
+        return ret;
+    }
+
+    /**
+     * Mark a node as shared
+     *
+     * <p>Neither this node nor any of its descendants will be modified
+     * directly from now on.</p>
+     *
+     * @param node the node
+     */
+    void share(final JsonNode node)
+    {
+        if (!node.isContainerNode())
+            return;
+        if (shared == null)
+            shared = Collections.newSetFromMap(
+                new IdentityHashMap<JsonNode, Boolean>());
+        shared.add(node);
+    }
+
+    /**
+     * Return the node to attach at the destination of a move
+     *
+     * <p>The moved node is detached from its source first, and is normally
+     * attached as is. However, its removal from the source is recorded along
+     * with the node itself; if the context is {@link #invertible(JsonNode)
+     * invertible}, the inverse patch is only built from this record once the
+     * whole patch is applied, and the node must not be modified by later
+     * operations in the meantime. A copy is then attached instead.</p>
+     *
+     * @param node the moved node
+     * @return the node to attach
+     */
+    JsonNode moved(final JsonNode node)
+    {
+        return copyMoved ? node.deepCopy() : node;
+    }
+
+    /**
+     * Duplicate a node of the value, so that it can be inserted at another
+     * location of the value
+     *
+     * <p>If this context was created with {@link #sharing(JsonNode)}, the node
+     * is not copied but marked as shared, and both locations refer to it
+     * until a change below either location copies the containers involved.
+     * Otherwise, a deep copy of the node is returned.</p>
+     *
+     * @param node the node
+     * @return the node to insert
+     */
+    JsonNode duplicate(final JsonNode node)
+    {
+        if (!sharing)
+            return node.deepCopy();
+        share(node);
+        return node;
+    }
+
+    /**
+     * Read the node at a given pointer
+     *
+     * <p>The returned node must not be modified.</p>
+     *
+     * @param pointer the pointer
+     * @return the node, or a {@link
+     * com.fasterxml.jackson.databind.node.MissingNode} if there is no node
+     * at this pointer
+     */
+    JsonNode get(final JsonPointer pointer)
+    {
+        final JsonNode ret = resolve(pointer);
+        return ret == null ? MissingNode.getInstance() : ret;
+    }
+
+    /*
+     * Obtain a container for modification; since the modification may
+     * invalidate nodes below this container, forget about them.
+     */
+    private JsonNode container(final JsonPointer pointer)
+    {
+        final JsonNode ret = getForUpdate(pointer);
+        forget(resolvedDepth);
+        return ret;
+    }
+
+    /*
+     * Resolve a pointer, starting from the nodes along the last pointer
+     * resolved; return null if there is no node at this pointer.
+     */
+    private JsonNode resolve(final JsonPointer pointer)
+    {
+        if (nodes.isEmpty())
+            nodes.add(root);
+
+        JsonNode node = root;
+        int depth = 0;
+
+        for (final TokenResolver<JsonNode> resolver: pointer) {
+            if (depth < tokens.size()) {
+                if (tokens.get(depth).equals(resolver)) {
+                    node = nodes.get(++depth);
+                    continue;
+                }
+                forget(depth);
+            }
+            node = resolver.get(node);
+            if (node == null)
+                return null;
+            tokens.add(resolver);
+            nodes.add(node);
+            depth++;
+        }
+
+        resolvedDepth = depth;
+        return node;
+    }
+
+    /*
+     * Forget about nodes deeper than the given depth
+     */
+    private void forget(final int depth)
+    {
+        if (depth >= tokens.size())
+            return;
+        tokens.subList(depth, tokens.size()).clear();
+        nodes.subList(depth + 1, nodes.size()).clear();
+    }
+
+    /*
+     * Forget about all nodes, including the root
+     */
+    private void reset()
+    {
+        tokens.clear();
+        nodes.clear();
+    }
+
+    /*
+     * Obtain the node at a given pointer for modification; the node must
+     * exist. Shared containers along the way are replaced with copies.
+     */
+    private JsonNode getForUpdate(final JsonPointer pointer)
+    {
+        final JsonNode ret = resolve(pointer);
+
+        if (shared == null)
+            return ret;
+
+        if (shared.contains(root)) {
+            root = copyOf(root);
+            nodes.set(0, root);
+        }
+
+        JsonNode child;
+
+        for (int i = 1; i <= resolvedDepth; i++) {
+            child = nodes.get(i);
+            if (shared.contains(child)) {
+                child = copyOf(child);
+                relink(nodes.get(i - 1), tokens.get(i - 1).getToken().getRaw(),
+                    child);
+                nodes.set(i, child);
+            }
+        }
+
+        return nodes.get(resolvedDepth);
+    }
+
+    /*
+     * Shallow copy of a shared container. Since its children are now
+     * referenced from both the original and the copy, they are marked as
+     * shared in turn.
+     */
+    private JsonNode copyOf(final JsonNode node)
+    {
+        final JsonNode ret;
+
+        if (node.isObject()) {
+            final ObjectNode objectNode = FACTORY.objectNode();
+            objectNode.setAll((ObjectNode) node);
+            ret = objectNode;
+        } else {
+            final ArrayNode arrayNode = FACTORY.arrayNode();
+            arrayNode.addAll((ArrayNode) node);
+            ret = arrayNode;
+        }
+
+        for (final JsonNode child: node)
+            share(child);
+
+        return ret;
+    }
+
+    private static void relink(final JsonNode parent, final String raw,
+        final JsonNode child)
+    {
+        if (parent.isObject())
+            ((ObjectNode) parent).set(raw, child);
+        else
+            ((ArrayNode) parent).set(Integer.parseInt(raw), child);
+    }
+
+    /*
+     * One change to the value. The container is the modified object or
+     * array, and parent is the pointer to it at the time of the change; the
+     * value is the node which the change replaced or removed, if any.
+     */
+    private static final class Change
+    {
+        private enum Kind
+        {
+            ROOT,
+            PUT_MEMBER,
+            REMOVE_MEMBER,
+            INSERT_ELEMENT,
+            SET_ELEMENT,
+            REMOVE_ELEMENT
+        }
+
+        private final Kind kind;
+        private final JsonNode container;
+        private final JsonPointer parent;
+        private final String name;
+        private final int index;
+        private final JsonNode value;
+
+        private Change(final Kind kind, final JsonNode container,
+            final JsonPointer parent, final String name, final int index,
+            final JsonNode value)
+        {
+            this.kind = kind;
+            this.container = container;
+            this.parent = parent;
+            this.name = name;
+            this.index = index;
+            this.value = value;
+        }
+
+        private void undo(final PatchContext context)
+        {
+            switch (kind) {
+                case ROOT:
+                    context.root = value;
+                    break;
+                case PUT_MEMBER:
+                    if (value == null)
+                        ((ObjectNode) container).remove(name);
+                    else
+                        ((ObjectNode) container).replace(name, value);
+                    break;
+                case REMOVE_MEMBER:
+                    reinsertMember();
+                    break;
+                case INSERT_ELEMENT:
+                    ((ArrayNode) container).remove(index);
+                    break;
+                case SET_ELEMENT:
+                    ((ArrayNode) container).set(index, value);
+                    break;
+                case REMOVE_ELEMENT:
+                    ((ArrayNode) container).insert(index, value);
+                    break;
+                default:
+                    throw new IllegalStateException("unhandled change kind");
+            }
+        }
+
+        private JsonPatchOperation inverse()
+        {
+            switch (kind) {
+                case ROOT:
+                    return value.isMissingNode()
+                        ? new RemoveOperation(JsonPointer.empty())
+                        : new AddOperation(JsonPointer.empty(), value);
+                case PUT_MEMBER:
+                    return value == null
+                        ? new RemoveOperation(parent.append(name))
+                        : new ReplaceOperation(parent.append(name), value);
+                case REMOVE_MEMBER:
+                    return new AddOperation(parent.append(name), value);
+                case INSERT_ELEMENT:
+                    return new RemoveOperation(parent.append(index));
+                case SET_ELEMENT:
+                    return new ReplaceOperation(parent.append(index), value);
+                case REMOVE_ELEMENT:
+                    return new AddOperation(parent.append(index), value);
+                default:
+                    throw new IllegalStateException("unhandled change kind");
+            }
+        }
+
+        /*
+         * Put a removed member back at its original position: members after
+         * this position are removed, then added back after this member.
+         */
+        private void reinsertMember()
+        {
+            final ObjectNode object = (ObjectNode) container;
+            final List<String> following = new ArrayList<String>();
+            final Iterator<String> names = object.fieldNames();
+
+            for (int i = 0; names.hasNext(); i++) {
+                final String next = names.next();
+                if (i >= index)
+                    following.add(next);
+            }
+
+            final ObjectNode tail = FACTORY.objectNode();
+            for (final String next: following)
+                tail.replace(next, object.remove(next));
+
+            object.replace(name, value);
+            object.setAll(tail);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+/**
+ * Event sent to a {@link PatchListener} once a patch is applied
+ *
+ * <p>The total time covers everything from checking the {@link
+ * JsonPatch#failFast() preconditions} of the patch, if any, to applying its
+ * last operation, including copying the input value when needed; it
+ * therefore exceeds the time spent applying operations.</p>
+ */
+public final class PatchEvent
+{
+    private final JsonPatch patch;
+    private final int operationCount;
+    private final long nanos;
+    private final long operationNanos;
+    private final JsonPatchException failure;
+
+    PatchEvent(final JsonPatch patch, final int operationCount,
+        final long nanos, final long operationNanos,
+        final JsonPatchException failure)
+    {
+        this.patch = patch;
+        this.operationCount = operationCount;
+        this.nanos = nanos;
+        this.operationNanos = operationNanos;
+        this.failure = failure;
+    }
+
+    /**
+     * Return the patch
+     *
+     * @return the patch
+     */
+    public JsonPatch getPatch()
+    {
+        return patch;
+    }
+
+    /**
+     * Return the number of operations applied, including the failed one, if
+     * any
+     *
+     * <p>This is 0 if a precondition failed, and may be less than the number
+     * of operations of the patch if an operation failed.</p>
+     *
+     * @return the number of operations
+     */
+    public int getOperationCount()
+    {
+        return operationCount;
+    }
+
+    /**
+     * Return the total time spent applying the patch
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * Return the time spent applying operations
+     *
+     * <p>This is the sum of the times reported for each operation.</p>
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getOperationNanos()
+    {
+        return operationNanos;
+    }
+
+    /**
+     * Tell whether the patch applied successfully
+     *
+     * @return true on success
+     */
+    public boolean isSuccess()
+    {
+        return failure == null;
+    }
+
+    /**
+     * Return the reason why the patch failed to apply
+     *
+     * @return the exception; null if the patch applied successfully
+     */
+    public JsonPatchException getFailure()
+    {
+        return failure;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "patch (" + operationCount + " operations): "
+            + (failure == null ? "success" : failure.getMessage()) + ", "
+            + nanos + " ns";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+/**
+ * Reason why a JSON Patch operation failed to apply
+ *
+ * @see JsonPatchException#getCode()
+ */
+public enum PatchFailureCode
+{
+    /**
+     * The value at the path (or {@code from}) of the operation does not
+     * exist
+     */
+    NO_SUCH_PATH("jsonPatch.noSuchPath"),
+    /**
+     * The parent of the value to add does not exist
+     */
+    NO_SUCH_PARENT("jsonPatch.noSuchParent"),
+    /**
+     * The parent of the value to add is neither an array nor an object
+     */
+    PARENT_NOT_CONTAINER("jsonPatch.parentNotContainer"),
+    /**
+     * The parent of the value to add is an array, but the last reference
+     * token is not an array index
+     */
+    NOT_AN_INDEX("jsonPatch.notAnIndex"),
+    /**
+     * The parent of the value to add is an array, but the index is out of
+     * bounds
+     */
+    NO_SUCH_INDEX("jsonPatch.noSuchIndex"),
+    /**
+     * A {@code test} operation found a different value
+     */
+    VALUE_TEST_FAILURE("jsonPatch.valueTestFailure"),
+    /**
+     * Any other failure
+     */
+    OTHER(null),
+    ;
+
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private final String key;
+
+    PatchFailureCode(final String key)
+    {
+        this.key = key;
+    }
+
+    /**
+     * Return the message describing this failure
+     *
+     * @return the message; null for {@link #OTHER}
+     */
+    public String getMessage()
+    {
+        return key == null ? null : BUNDLE.getMessage(key);
+    }
+}
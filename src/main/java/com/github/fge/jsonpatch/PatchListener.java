@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.github.fge.jsonpatch.diff.DiffEvent;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+/**
+ * Listener notified of the application of patches and of diff computations
+ *
+ * <p>Attach a listener to a patch using {@link
+ * JsonPatch#withListener(PatchListener)}, or pass it to {@link
+ * JsonDiff#asJsonPatch(com.fasterxml.jackson.databind.JsonNode,
+ * com.fasterxml.jackson.databind.JsonNode, PatchListener)}. All methods do
+ * nothing by default; override those you need.</p>
+ *
+ * <p>Listeners are called synchronously, on the thread applying the patch,
+ * and their cost adds to the timings they receive: they should be fast, and
+ * must not throw exceptions. Since a patch may be applied from several
+ * threads at the same time, they must also be thread safe.</p>
+ */
+public abstract class PatchListener
+{
+    /**
+     * Called after each operation of a patch is applied, or fails to apply
+     *
+     * @param event the event
+     */
+    public void operationApplied(final OperationEvent event)
+    {
+    }
+
+    /**
+     * Called after a patch is applied, or fails to apply
+     *
+     * <p>This is called after the events for all operations of the patch.
+     * </p>
+     *
+     * @param event the event
+     */
+    public void patchApplied(final PatchEvent event)
+    {
+    }
+
+    /**
+     * Called after a diff is computed
+     *
+     * @param event the event
+     */
+    public void diffComputed(final DiffEvent event)
+    {
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Report the application of one patch to its {@link PatchListener}
+ *
+ * <p>One instance is created each time a patch with a listener is applied;
+ * the total time is counted from its creation.</p>
+ */
+final class PatchMonitor
+{
+    private final JsonPatch patch;
+    private final PatchListener listener;
+    private final long start = System.nanoTime();
+
+    private int operationCount = 0;
+    private long operationNanos = 0L;
+
+    PatchMonitor(final JsonPatch patch, final PatchListener listener)
+    {
+        this.patch = patch;
+        this.listener = listener;
+    }
+
+    /**
+     * Apply operations one by one, reporting each of them, then the patch
+     *
+     * @param operations the operations
+     * @param context the patch context
+     * @return the patched value
+     * @throws JsonPatchException an operation failed to apply
+     */
+    JsonNode apply(final List<JsonPatchOperation> operations,
+        final PatchContext context)
+        throws JsonPatchException
+    {
+        final int size = operations.size();
+        long begin;
+
+        for (int index = 0; index < size; index++) {
+            begin = System.nanoTime();
+            try {
+                operations.get(index).applyInPlace(context);
+            } catch (JsonPatchException e) {
+                operationApplied(index, begin, e.atOperation(index));
+                throw failed(e);
+            }
+            operationApplied(index, begin, null);
+        }
+
+        listener.patchApplied(new PatchEvent(patch, operationCount,
+            System.nanoTime() - start, operationNanos, null));
+        return context.getRoot();
+    }
+
+    /**
+     * Report the failure of the patch
+     *
+     * @param failure the reason for the failure
+     * @return the failure, for the caller to throw
+     */
+    JsonPatchException failed(final JsonPatchException failure)
+    {
+        listener.patchApplied(new PatchEvent(patch, operationCount,
+            System.nanoTime() - start, operationNanos, failure));
+        return failure;
+    }
+
+    private void operationApplied(final int index, final long begin,
+        final JsonPatchException failure)
+    {
+        final long nanos = System.nanoTime() - begin;
+
+        operationCount++;
+        operationNanos += nanos;
+        listener.operationApplied(new OperationEvent(patch, index, nanos,
+            failure));
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a list of patch operations into a shorter, equivalent list
+ *
+ * <p>"Equivalent" means that for any input value, the rewritten list either
+ * yields the same result as the original list, or fails where the original
+ * list fails. The following rewrites are performed:</p>
+ *
+ * <ul>
+ *     <li>{@code move} operations where {@code from} and {@code path} are the
+ *     same are removed;</li>
+ *     <li>{@code add} or {@code replace} followed by {@code replace} at the
+ *     same path is folded into the first operation, with the value of the
+ *     second;</li>
+ *     <li>{@code add} or {@code replace} followed by {@code add} at the same
+ *     path is folded in the same way, if the path cannot designate an array
+ *     element;</li>
+ *     <li>{@code replace} followed by {@code remove} at the same path is
+ *     folded into the {@code remove};</li>
+ *     <li>{@code test} following {@code add} or {@code replace} at the same
+ *     path, with an equivalent value, is removed.</li>
+ * </ul>
+ *
+ * <p>The two operations need not be consecutive: operations in between are
+ * skipped as long as they cannot affect, nor be affected by, the value at
+ * this path (see {@link #independent(JsonPatchOperation, JsonPointer)}).
+ * Operations of unknown types are never skipped.</p>
+ *
+ * <p>Note that {@code add} followed by {@code remove} cannot be rewritten: the
+ * {@code add} fails if the parent does not exist, whereas a lone {@code
+ * remove} fails if the value itself does not exist.</p>
+ */
+final class PatchOptimizer
+{
+    private static final JsonNumEquals EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    /*
+     * Operations defined outside of this package may do anything; we only
+     * reason about our own.
+     */
+    static final Set<Class<?>> KNOWN_OPERATIONS
+        = new HashSet<Class<?>>(Arrays.<Class<?>>asList(AddOperation.class,
+            CopyOperation.class, MoveOperation.class, RemoveOperation.class,
+            ReplaceOperation.class, TestOperation.class));
+
+    private PatchOptimizer()
+    {
+    }
+
+    static List<JsonPatchOperation> optimize(
+        final List<JsonPatchOperation> operations)
+    {
+        final List<JsonPatchOperation> ret
+            = new ArrayList<JsonPatchOperation>(operations.size());
+
+        for (final JsonPatchOperation operation: operations) {
+            if (operation instanceof MoveOperation
+                && ((MoveOperation) operation).from.equals(operation.path))
+                continue;
+            if (!fold(ret, operation))
+                ret.add(operation);
+        }
+
+        return ret;
+    }
+
+    /*
+     * Try and fold an operation into one of the already retained operations;
+     * return true if successful, in which case the operation must not be
+     * retained.
+     */
+    private static boolean fold(final List<JsonPatchOperation> retained,
+        final JsonPatchOperation operation)
+    {
+        final JsonPointer path = operation.path;
+        JsonPatchOperation previous;
+        JsonPatchOperation folded;
+
+        for (int index = retained.size() - 1; index >= 0; index--) {
+            previous = retained.get(index);
+            if (previous.path.equals(path)) {
+                folded = fold(previous, operation);
+                if (folded == null)
+                    return false;
+                if (folded != previous)
+                    retained.set(index, folded);
+                return true;
+            }
+            if (!independent(previous, path))
+                return false;
+        }
+
+        return false;
+    }
+
+    /*
+     * Fold two operations with the same path. Returns the folded operation
+     * (which may be the first operation itself), or null if these operations
+     * cannot be folded.
+     */
+    private static JsonPatchOperation fold(final JsonPatchOperation first,
+        final JsonPatchOperation second)
+    {
+        final boolean firstIsAdd = first instanceof AddOperation;
+        if (!firstIsAdd && !(first instanceof ReplaceOperation))
+            return null;
+
+        final JsonPointer path = first.path;
+
+        /*
+         * Whatever the second operation, if the last token is "-", the path
+         * designates a different array element for each operation.
+         */
+        final PreparedPointer target = first.preparedPath();
+        if (target.append)
+            return null;
+
+        final JsonNode value = ((PathValueOperation) first).value;
+
+        if (second instanceof TestOperation)
+            return EQUIVALENCE.equivalent(value,
+                ((TestOperation) second).value) ? first : null;
+
+        if (second instanceof ReplaceOperation) {
+            final JsonNode newValue = ((ReplaceOperation) second).value;
+            return firstIsAdd ? AddOperation.withOwnedValue(path, newValue)
+                : ReplaceOperation.withOwnedValue(path, newValue);
+        }
+
+        if (second instanceof AddOperation) {
+            /*
+             * If the parent is an array, both operations insert a value
+             */
+            if (target.numeric)
+                return null;
+            final JsonNode newValue = ((AddOperation) second).value;
+            return firstIsAdd ? AddOperation.withOwnedValue(path, newValue)
+                : ReplaceOperation.withOwnedValue(path, newValue);
+        }
+
+        if (second instanceof RemoveOperation)
+            return firstIsAdd ? null : second;
+
+        return null;
+    }
+
+    /**
+     * Return the {@code test} operations of a patch which can be checked
+     * against the original value
+     *
+     * <p>This is the case of a {@code test} operation if all operations
+     * before it in the patch are either {@code test} operations or {@link
+     * #independent(JsonPatchOperation, JsonPointer) independent} from its
+     * path.</p>
+     *
+     * @param operations the operations of the patch
+     * @return the list of such {@code test} operations, in patch order
+     */
+    static List<JsonPatchOperation> preconditions(
+        final List<JsonPatchOperation> operations)
+    {
+        final List<JsonPatchOperation> ret
+            = new ArrayList<JsonPatchOperation>();
+        final int size = operations.size();
+
+        JsonPatchOperation operation, previous;
+
+        for (int i = 0; i < size; i++) {
+            operation = operations.get(i);
+            if (!(operation instanceof TestOperation))
+                continue;
+            int j = 0;
+            for (; j < i; j++) {
+                previous = operations.get(j);
+                if (!(previous instanceof TestOperation)
+                    && !independent(previous, operation.path))
+                    break;
+            }
+            if (j == i)
+                ret.add(operation);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Tell whether an operation is independent from the value at a given
+     * pointer, which may be modified
+     *
+     * <p>This is the case if applying the operation can neither modify the
+     * value at this pointer, nor change the location of this value, nor
+     * depend on this value. The check is conservative:</p>
+     *
+     * <ul>
+     *     <li>for pointers the operation writes to, neither pointer must be an
+     *     ancestor of the other; unless the last token of a pointer cannot be
+     *     an array index (it is neither {@code -} nor made of digits only),
+     *     its siblings are ruled out as well, since they could be shifted
+     *     array elements;</li>
+     *     <li>for pointers the operation only reads ({@code path} for {@code
+     *     test}, {@code from} for {@code copy}), the pointer must not be an
+     *     ancestor of the given pointer, and must not be a descendant of it
+     *     (or of its siblings, as above).</li>
+     * </ul>
+     *
+     * @param operation the operation
+     * @param pointer the pointer
+     * @return true if the operation is independent from this pointer
+     */
+    static boolean independent(final JsonPatchOperation operation,
+        final JsonPointer pointer)
+    {
+        if (!KNOWN_OPERATIONS.contains(operation.getClass()))
+            return false;
+        if (pointer.isEmpty())
+            return false;
+        if (operation instanceof TestOperation)
+            return readIndependent(operation.path, pointer);
+        if (!writeIndependent(operation.path, pointer))
+            return false;
+        if (operation instanceof CopyOperation)
+            return readIndependent(((CopyOperation) operation).from, pointer);
+        if (operation instanceof MoveOperation)
+            return writeIndependent(((MoveOperation) operation).from, pointer);
+        return true;
+    }
+
+    private static boolean writeIndependent(final JsonPointer written,
+        final JsonPointer pointer)
+    {
+        if (written.isEmpty())
+            return false;
+        return !isPrefix(scope(written), pointer)
+            && !isPrefix(scope(pointer), written);
+    }
+
+    private static boolean readIndependent(final JsonPointer read,
+        final JsonPointer pointer)
+    {
+        return !isPrefix(read, pointer) && !isPrefix(scope(pointer), read);
+    }
+
+    /*
+     * Writing to a pointer may affect its siblings if it is an array index,
+     * since elements may be shifted. If the last token cannot be an array
+     * index, the value it refers to can only be an object member, and
+     * siblings are left alone.
+     */
+    private static JsonPointer scope(final JsonPointer pointer)
+    {
+        String raw = null;
+
+        for (final TokenResolver<JsonNode> resolver: pointer)
+            raw = resolver.getToken().getRaw();
+
+        return raw == null || mayBeIndex(raw) ? pointer.parent() : pointer;
+    }
+
+    /*
+     * Array indices are parsed with Integer.parseInt(), which also accepts
+     * signs ("+1", "-0"); conservatively, any token starting like a number,
+     * including "-", may be an array index.
+     */
+    private static boolean mayBeIndex(final String raw)
+    {
+        if (raw.isEmpty())
+            return false;
+
+        final char c = raw.charAt(0);
+        return c == '+' || c == '-' || Character.isDigit(c);
+    }
+
+    private static boolean isPrefix(final JsonPointer prefix,
+        final JsonPointer pointer)
+    {
+        final Iterator<TokenResolver<JsonNode>> iterator = pointer.iterator();
+
+        for (final TokenResolver<JsonNode> resolver: prefix)
+            if (!iterator.hasNext() || !resolver.equals(iterator.next()))
+                return false;
+
+        return true;
+    }
+}
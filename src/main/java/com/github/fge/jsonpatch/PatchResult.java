@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+/**
+ * The outcome of applying a patch to a JSON value
+ *
+ * <p>An instance of this class holds either the patched value, if the patch
+ * applied successfully, or the exception explaining why it did not. In the
+ * latter case, the details of the failure are also available directly.</p>
+ *
+ * @see JsonPatch#tryApply(JsonNode)
+ */
+public final class PatchResult
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private final JsonNode node;
+    private final JsonPatchException exception;
+
+    private PatchResult(final JsonNode node,
+        final JsonPatchException exception)
+    {
+        this.node = node;
+        this.exception = exception;
+    }
+
+    /**
+     * Build a successful result
+     *
+     * @param node the patched value
+     * @return a new result
+     * @throws NullPointerException value is null
+     */
+    public static PatchResult success(final JsonNode node)
+    {
+        BUNDLE.checkNotNull(node, "common.nullArgument");
+        return new PatchResult(node, null);
+    }
+
+    /**
+     * Build a failed result
+     *
+     * @param exception the reason for the failure
+     * @return a new result
+     * @throws NullPointerException exception is null
+     */
+    public static PatchResult failure(final JsonPatchException exception)
+    {
+        BUNDLE.checkNotNull(exception, "common.nullArgument");
+        return new PatchResult(null, exception);
+    }
+
+    /**
+     * Tell whether the patch applied successfully
+     *
+     * @return true on success
+     */
+    public boolean isSuccess()
+    {
+        return exception == null;
+    }
+
+    /**
+     * Return the patched value
+     *
+     * @return the patched value; null if the patch failed to apply
+     */
+    public JsonNode getNode()
+    {
+        return node;
+    }
+
+    /**
+     * Return the reason why the patch failed to apply
+     *
+     * @return the exception; null if the patch applied successfully
+     */
+    public JsonPatchException getException()
+    {
+        return exception;
+    }
+
+    /**
+     * Return the reason why the patch failed to apply, as a code
+     *
+     * @return the failure code; null if the patch applied successfully
+     * @see JsonPatchException#getCode()
+     */
+    public PatchFailureCode getCode()
+    {
+        return exception == null ? null : exception.getCode();
+    }
+
+    /**
+     * Return the index of the operation which failed to apply
+     *
+     * @return the index; -1 if the patch applied successfully, or if unknown
+     * @see JsonPatchException#getOperationIndex()
+     */
+    public int getOperationIndex()
+    {
+        return exception == null ? -1 : exception.getOperationIndex();
+    }
+
+    /**
+     * Return the JSON Pointer the patch failed to apply on
+     *
+     * @return the pointer; null if the patch applied successfully, or if
+     * unknown
+     * @see JsonPatchException#getPointer()
+     */
+    public JsonPointer getPointer()
+    {
+        return exception == null ? null : exception.getPointer();
+    }
+
+    /**
+     * Return the patched value, or throw the reason why there is none
+     *
+     * @return the patched value
+     * @throws JsonPatchException the patch failed to apply
+     */
+    public JsonNode get()
+        throws JsonPatchException
+    {
+        if (exception != null)
+            throw exception;
+        return node;
+    }
+
+    @Override
+    public String toString()
+    {
+        return exception == null ? "success: " + node
+            : "failure: " + exception.getMessage();
+    }
+}
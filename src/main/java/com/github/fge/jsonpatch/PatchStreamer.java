@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Apply a JSON Patch while copying a JSON value from a parser to a generator
+ *
+ * <p>Operations of a patch are first grouped according to the locations they
+ * read and write. The value is then streamed, token by token; only values
+ * which operations need to see as a whole are read as a tree:</p>
+ *
+ * <ul>
+ *     <li>in an object, members which no operation refers to are copied as
+ *     is; a member whose descendants only are referred to is itself
+ *     streamed; other referred members are read, and the operations
+ *     referring to them are applied to an object containing only these
+ *     members;</li>
+ *     <li>in an array, elements are streamed in the same way if all
+ *     operations refer to descendants of elements, and appended values are
+ *     written after the last element if all operations append to the array;
+ *     otherwise, since operations may shift elements, the array is read as a
+ *     whole.</li>
+ * </ul>
+ *
+ * <p>When operations refer to several members of an object, these members
+ * are written together, once the last of them has been read, or at the end of
+ * the object if some of them do not exist.</p>
+ *
+ * <p>Operations of different groups cannot see each other's changes, so
+ * groups can be applied in the order in which the value is read. If several
+ * groups fail, the exception thrown is the one of the first failed operation
+ * in the patch, which is the one {@link JsonPatch#apply(JsonNode)} would
+ * throw.</p>
+ *
+ * <p>A patch containing operations defined outside of this package is applied
+ * to the whole value read as a tree.</p>
+ */
+final class PatchStreamer
+{
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    private static final Comparator<Step> PATCH_ORDER = new Comparator<Step>()
+    {
+        @Override
+        public int compare(final Step o1, final Step o2)
+        {
+            return o1.index < o2.index ? -1 : o1.index == o2.index ? 0 : 1;
+        }
+    };
+
+    private final List<Step> steps;
+    private final boolean streamable;
+
+    private int failedIndex = Integer.MAX_VALUE;
+    private JsonPatchException failure = null;
+
+    PatchStreamer(final List<JsonPatchOperation> operations)
+    {
+        steps = new ArrayList<Step>(operations.size());
+
+        boolean known = true;
+        int index = 0;
+
+        for (final JsonPatchOperation operation: operations) {
+            if (!PatchOptimizer.KNOWN_OPERATIONS.contains(operation.getClass()))
+                known = false;
+            steps.add(new Step(index++, operation));
+        }
+
+        streamable = known;
+    }
+
+    /**
+     * Read one JSON value from a parser and write the patched value
+     *
+     * @param parser the parser
+     * @param generator the generator
+     * @throws IOException failed to read or write
+     * @throws JsonPatchException failed to apply patch
+     */
+    void stream(final JsonParser parser, final JsonGenerator generator)
+        throws IOException, JsonPatchException
+    {
+        if (parser.getCurrentToken() == null && parser.nextToken() == null)
+            throw new JsonParseException(parser, "no JSON value to read");
+
+        if (streamable)
+            process(parser, generator, steps, 0);
+        else
+            materialize(parser, generator, steps, 0);
+
+        if (failure != null)
+            throw failure;
+    }
+
+    /*
+     * Stream the value the parser is positioned on; all steps refer to this
+     * value or to its descendants, and the first depth tokens of their
+     * pointers refer to this value.
+     */
+    private void process(final JsonParser parser,
+        final JsonGenerator generator, final List<Step> group, final int depth)
+        throws IOException
+    {
+        if (group.isEmpty()) {
+            copy(parser, generator);
+            return;
+        }
+
+        final JsonToken token = parser.getCurrentToken();
+
+        if (token == JsonToken.START_OBJECT && below(group, depth))
+            streamObject(parser, generator, group, depth);
+        else if (token == JsonToken.START_ARRAY && below(group, depth))
+            streamArray(parser, generator, group, depth);
+        else
+            materialize(parser, generator, group, depth);
+    }
+
+    private void streamObject(final JsonParser parser,
+        final JsonGenerator generator, final List<Step> group, final int depth)
+        throws IOException
+    {
+        final Map<String, Component> components = components(group, depth);
+
+        String name;
+        Component component;
+
+        generator.writeStartObject();
+
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            name = parser.getCurrentName();
+            parser.nextToken();
+            component = components.get(name);
+            if (component == null || component.done) {
+                generator.writeFieldName(name);
+                copy(parser, generator);
+            } else if (component.descend) {
+                component.done = true;
+                generator.writeFieldName(name);
+                process(parser, generator, component.group, depth + 1);
+            } else {
+                component.members.set(name, READER.<JsonNode>readTree(parser));
+                if (++component.seen == component.names.size())
+                    flush(generator, component, depth);
+            }
+        }
+
+        for (final Component c: new LinkedHashSet<Component>(
+            components.values()))
+            if (!c.done)
+                flush(generator, c, depth);
+
+        generator.writeEndObject();
+    }
+
+    /*
+     * Apply the steps of a component to the members it refers to, and write
+     * the resulting members.
+     */
+    private void flush(final JsonGenerator generator, final Component component,
+        final int depth)
+        throws IOException
+    {
+        component.done = true;
+
+        final Iterator<Map.Entry<String, JsonNode>> iterator
+            = apply(component.members, component.group, depth).fields();
+
+        Map.Entry<String, JsonNode> entry;
+
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            generator.writeFieldName(entry.getKey());
+            JsonWriters.WRITER.writeValue(generator, entry.getValue());
+        }
+    }
+
+    private void streamArray(final JsonParser parser,
+        final JsonGenerator generator, final List<Step> group, final int depth)
+        throws IOException
+    {
+        if (appendsOnly(group, depth)) {
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY)
+                copy(parser, generator);
+            for (final Step step: group)
+                JsonWriters.WRITER.writeValue(generator,
+                    ((AddOperation) step.operation).value);
+            generator.writeEndArray();
+            return;
+        }
+
+        final Map<String, Component> components = components(group, depth);
+
+        for (final Map.Entry<String, Component> entry: components.entrySet())
+            if (!entry.getValue().descend || !isIndex(entry.getKey())) {
+                materialize(parser, generator, group, depth);
+                return;
+            }
+
+        int index = 0;
+        Component component;
+
+        generator.writeStartArray();
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            component = components.get(Integer.toString(index++));
+            if (component == null || component.done) {
+                copy(parser, generator);
+            } else {
+                component.done = true;
+                process(parser, generator, component.group, depth + 1);
+            }
+        }
+
+        /*
+         * Elements which do not exist: this can only fail.
+         */
+        for (final Component c: components.values())
+            if (!c.done)
+                apply(MissingNode.getInstance(), c.group, depth + 1);
+
+        generator.writeEndArray();
+    }
+
+    private void materialize(final JsonParser parser,
+        final JsonGenerator generator, final List<Step> group, final int depth)
+        throws IOException
+    {
+        final JsonNode node = READER.readTree(parser);
+        final JsonNode result = apply(node, group, depth);
+
+        if (!result.isMissingNode())
+            JsonWriters.WRITER.writeValue(generator, result);
+    }
+
+    /*
+     * Apply steps to a value; stop at the first failure, or as soon as the
+     * remaining steps cannot fail before an already failed one.
+     */
+    private JsonNode apply(final JsonNode node, final List<Step> group,
+        final int depth)
+    {
+        final PatchContext context = new PatchContext(node);
+
+        for (final Step step: group) {
+            if (step.index > failedIndex)
+                break;
+            try {
+                step.relativeTo(depth).applyInPlace(context);
+            } catch (JsonPatchException e) {
+                failedIndex = step.index;
+                failure = step.absolute(e, depth).atOperation(step.index);
+                break;
+            }
+        }
+
+        return context.getRoot();
+    }
+
+    /*
+     * Like JsonGenerator.copyCurrentStructure(), except that floating point
+     * numbers are copied exactly, as they would be if read as a tree.
+     */
+    private static void copy(final JsonParser parser,
+        final JsonGenerator generator)
+        throws IOException
+    {
+        JsonToken token = parser.getCurrentToken();
+        int level = 0;
+
+        do {
+            if (token == JsonToken.VALUE_NUMBER_FLOAT)
+                generator.writeNumber(parser.getDecimalValue());
+            else
+                generator.copyCurrentEvent(parser);
+            if (token.isStructStart())
+                level++;
+            else if (token.isStructEnd())
+                level--;
+        } while (level > 0 && (token = parser.nextToken()) != null);
+    }
+
+    private static boolean below(final List<Step> group, final int depth)
+    {
+        for (final Step step: group)
+            if (step.minLength() <= depth)
+                return false;
+        return true;
+    }
+
+    private static boolean appendsOnly(final List<Step> group,
+        final int depth)
+    {
+        for (final Step step: group)
+            if (!(step.operation instanceof AddOperation)
+                || step.path.size() != depth + 1
+                || !"-".equals(Step.token(step.path, depth)))
+                return false;
+        return true;
+    }
+
+    /*
+     * Array index tokens, as accepted by JSON Pointer: no leading zeroes.
+     * Tokens too large to be an int cannot match any element anyway; just
+     * fall back to reading the array.
+     */
+    private static boolean isIndex(final String token)
+    {
+        final int length = token.length();
+
+        if (length == 0 || length > 9)
+            return false;
+        if (length > 1 && token.charAt(0) == '0')
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (!Character.isDigit(token.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /*
+     * Group steps according to the members of the current value they refer
+     * to; two steps referring to a same member are in the same component.
+     */
+    private static Map<String, Component> components(final List<Step> group,
+        final int depth)
+    {
+        final Map<String, Component> ret
+            = new LinkedHashMap<String, Component>();
+
+        Component component, other;
+
+        for (final Step step: group) {
+            component = new Component();
+            for (final String name: step.names(depth)) {
+                other = ret.get(name);
+                if (other == component)
+                    continue;
+                if (other == null) {
+                    component.names.add(name);
+                    ret.put(name, component);
+                    continue;
+                }
+                component.names.addAll(other.names);
+                component.group.addAll(other.group);
+                for (final String otherName: other.names)
+                    ret.put(otherName, component);
+            }
+            component.group.add(step);
+        }
+
+        for (final Component c: new LinkedHashSet<Component>(ret.values())) {
+            Collections.sort(c.group, PATCH_ORDER);
+            c.descend = c.names.size() == 1 && below(c.group, depth + 1);
+        }
+
+        return ret;
+    }
+
+    private static final class Component
+    {
+        private final Set<String> names = new LinkedHashSet<String>();
+        private final List<Step> group = new ArrayList<Step>();
+        private final ObjectNode members = JacksonUtils.nodeFactory()
+            .objectNode();
+        private boolean descend;
+        private int seen = 0;
+        private boolean done = false;
+    }
+
+    /*
+     * One operation, along with its position in the patch and the tokens of
+     * its pointer(s)
+     */
+    private static final class Step
+    {
+        private final int index;
+        private final JsonPatchOperation operation;
+        private final List<TokenResolver<JsonNode>> path;
+        private final List<TokenResolver<JsonNode>> from;
+
+        private Step(final int index, final JsonPatchOperation operation)
+        {
+            this.index = index;
+            this.operation = operation;
+            path = tokens(operation.path);
+            from = operation instanceof DualPathOperation
+                ? tokens(((DualPathOperation) operation).from) : null;
+        }
+
+        private int minLength()
+        {
+            return from == null ? path.size()
+                : Math.min(path.size(), from.size());
+        }
+
+        private Set<String> names(final int depth)
+        {
+            final Set<String> ret = new LinkedHashSet<String>(2);
+
+            ret.add(token(path, depth));
+            if (from != null)
+                ret.add(token(from, depth));
+            return ret;
+        }
+
+        /*
+         * Only called on known operations if depth is not 0
+         */
+        private JsonPatchOperation relativeTo(final int depth)
+        {
+            if (depth == 0)
+                return operation;
+
+            final JsonPointer relative = pointer(path, depth);
+
+            if (operation instanceof AddOperation)
+                return AddOperation.withOwnedValue(relative,
+                    ((AddOperation) operation).value);
+            if (operation instanceof RemoveOperation)
+                return new RemoveOperation(relative);
+            if (operation instanceof ReplaceOperation)
+                return ReplaceOperation.withOwnedValue(relative,
+                    ((ReplaceOperation) operation).value);
+            if (operation instanceof TestOperation)
+                return TestOperation.withOwnedValue(relative,
+                    ((TestOperation) operation).value);
+            if (operation instanceof MoveOperation)
+                return new MoveOperation(pointer(from, depth), relative);
+            if (operation instanceof CopyOperation)
+                return new CopyOperation(pointer(from, depth), relative);
+            throw new IllegalStateException("unknown operation " + operation);
+        }
+
+        /*
+         * Report a failure of the operation returned by relativeTo() as a
+         * failure of the original operation, with its own pointers
+         */
+        private JsonPatchException absolute(final JsonPatchException e,
+            final int depth)
+        {
+            final JsonPointer relative = e.getPointer();
+
+            if (depth == 0 || relative == null)
+                return e;
+
+            final JsonPointer pointer
+                = from != null && relative.equals(pointer(from, depth))
+                ? ((DualPathOperation) operation).from : operation.path;
+
+            return new JsonPatchException(e.getCode(), pointer, false);
+        }
+
+        private static String token(final List<TokenResolver<JsonNode>> tokens,
+            final int depth)
+        {
+            return tokens.get(depth).getToken().getRaw();
+        }
+
+        private static List<TokenResolver<JsonNode>> tokens(
+            final JsonPointer pointer)
+        {
+            final List<TokenResolver<JsonNode>> ret
+                = new ArrayList<TokenResolver<JsonNode>>();
+
+            for (final TokenResolver<JsonNode> resolver: pointer)
+                ret.add(resolver);
+            return ret;
+        }
+
+        private static JsonPointer pointer(
+            final List<TokenResolver<JsonNode>> tokens, final int depth)
+        {
+            return new JsonPointer(tokens.subList(depth, tokens.size()));
+        }
+    }
+}
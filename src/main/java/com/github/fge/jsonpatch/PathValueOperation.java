@@ -47,9 +47,24 @@ public abstract class PathValueOperation
      */
     protected PathValueOperation(final String op, final JsonPointer path,
         final JsonNode value)
+    {
+        this(op, path, value, true);
+    }
+
+    /**
+     * Constructor, optionally taking ownership of the value
+     *
+     * @param op operation name
+     * @param path affected path
+     * @param value JSON value
+     * @param copy whether to copy the value; if false, the caller must not
+     * modify the value afterwards
+     */
+    PathValueOperation(final String op, final JsonPointer path,
+        final JsonNode value, final boolean copy)
     {
         super(op, path);
-        this.value = value.deepCopy();
+        this.value = copy ? value.deepCopy() : value;
     }
 
     @Override
@@ -58,10 +73,13 @@ public abstract class PathValueOperation
         throws IOException, JsonProcessingException
     {
         jgen.writeStartObject();
-        jgen.writeStringField("op", op);
-        jgen.writeStringField("path", path.toString());
-        jgen.writeFieldName("value");
-        jgen.writeTree(value);
+        writeOpAndPath(jgen);
+        jgen.writeFieldName(VALUE);
+        /*
+         * Unlike writeTree(), this does not require the generator to have a
+         * codec; see JsonPatch#writeTo(JsonGenerator)
+         */
+        value.serialize(jgen, provider);
         jgen.writeEndObject();
     }
 
@@ -77,6 +95,32 @@ public abstract class PathValueOperation
         return value.deepCopy();
     }
 
+    /**
+     * Return the value of this operation, without copying it
+     *
+     * <p>The returned node is the one used by this operation, and must not be
+     * modified.</p>
+     *
+     * @return the value
+     * @see #getValue()
+     */
+    public final JsonNode viewValue() {
+        return value;
+    }
+
+    @Override
+    public final boolean equals(final Object obj)
+    {
+        return super.equals(obj)
+            && value.equals(((PathValueOperation) obj).value);
+    }
+
+    @Override
+    public final int hashCode()
+    {
+        return 31 * super.hashCode() + value.hashCode();
+    }
+
     @Override
     public final String toString()
     {
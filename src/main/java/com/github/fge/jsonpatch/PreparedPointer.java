@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+
+/**
+ * A JSON Pointer split in advance for use by patch operations
+ *
+ * <p>Most operations need the parent of their target pointer, the last
+ * reference token of this pointer and, if the parent is an array, this token
+ * as an array index. Computing these requires walking the pointer's list of
+ * tokens and allocating a new pointer for the parent; instances of this class
+ * do it once and for all.</p>
+ *
+ * @see JsonPatch#compile()
+ */
+final class PreparedPointer
+{
+    private static final String LAST_ARRAY_ELEMENT = "-";
+
+    /**
+     * The pointer itself
+     */
+    final JsonPointer pointer;
+
+    /**
+     * The parent pointer; null if the pointer is empty
+     */
+    final JsonPointer parent;
+
+    /**
+     * The raw last reference token; null if the pointer is empty
+     */
+    final String raw;
+
+    /**
+     * Whether the last reference token is {@code -}
+     */
+    final boolean append;
+
+    /**
+     * Whether the last reference token can be parsed as an integer
+     */
+    final boolean numeric;
+
+    /**
+     * The last reference token as an integer; only meaningful if {@link
+     * #numeric} is true
+     */
+    final int index;
+
+    PreparedPointer(final JsonPointer pointer)
+    {
+        this.pointer = pointer;
+        if (pointer.isEmpty()) {
+            parent = null;
+            raw = null;
+            append = false;
+            numeric = false;
+            index = -1;
+            return;
+        }
+        parent = pointer.parent();
+        final TokenResolver<JsonNode> token = Iterables.getLast(pointer);
+        raw = token.getToken().getRaw();
+        append = LAST_ARRAY_ELEMENT.equals(raw);
+        int i;
+        boolean valid;
+        try {
+            i = Integer.parseInt(raw);
+            valid = true;
+        } catch (NumberFormatException ignored) {
+            i = -1;
+            valid = false;
+        }
+        numeric = valid;
+        index = i;
+    }
+}
@@ -26,9 +26,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 
 import java.io.IOException;
@@ -52,19 +50,39 @@ public final class RemoveOperation
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
     {
-        if (path.isEmpty())
-            return MissingNode.getInstance();
-        if (path.path(node).isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchPath"));
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parentNode = path.parent().get(ret);
-        final String raw = Iterables.getLast(path).getToken().getRaw();
-        if (parentNode.isObject())
-            ((ObjectNode) parentNode).remove(raw);
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
+    {
+        removeValue(context, preparedPath());
+    }
+
+    /**
+     * Remove a value from the value held by a patch context, with the
+     * semantics of this operation
+     *
+     * @param context the patch context
+     * @param target the path of the value to remove
+     * @throws JsonPatchException there is no value at this path
+     */
+    static void removeValue(final PatchContext context,
+        final PreparedPointer target)
+        throws JsonPatchException
+    {
+        if (target.parent == null) {
+            context.setRoot(MissingNode.getInstance());
+            return;
+        }
+        if (context.get(target.pointer).isMissingNode())
+            throw context.failure(PatchFailureCode.NO_SUCH_PATH,
+                target.pointer);
+        if (context.get(target.parent).isObject())
+            context.removeMember(target.parent, target.raw);
         else
-            ((ArrayNode) parentNode).remove(Integer.parseInt(raw));
-        return ret;
+            context.removeElement(target.parent, target.index);
     }
 
     @Override
@@ -73,8 +91,7 @@ public final class RemoveOperation
         throws IOException, JsonProcessingException
     {
         jgen.writeStartObject();
-        jgen.writeStringField("op", "remove");
-        jgen.writeStringField("path", path.toString());
+        writeOpAndPath(jgen);
         jgen.writeEndObject();
     }
 
@@ -22,8 +22,6 @@ package com.github.fge.jsonpatch;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 
 /**
@@ -38,16 +36,47 @@ import com.github.fge.jackson.jsonpointer.JsonPointer;
 public final class ReplaceOperation
     extends PathValueOperation
 {
+    public ReplaceOperation(final JsonPointer path, final JsonNode value)
+    {
+        super("replace", path, value);
+    }
+
+    private ReplaceOperation(final JsonPointer path, final JsonNode value,
+        final boolean copy)
+    {
+        super("replace", path, value, copy);
+    }
+
+    /**
+     * Build a new {@code replace} operation, taking ownership of the value
+     *
+     * <p>Unlike the constructor, this method does not copy the value: the
+     * caller hands it over to the operation and must not modify it, nor
+     * any of its descendants, afterwards. This is what patches read from
+     * JSON use, since nothing else refers to the values just parsed.</p>
+     *
+     * @param path the path of the value to replace
+     * @param value the value; it must not be modified afterwards
+     * @return a new operation
+     */
     @JsonCreator
-    public ReplaceOperation(@JsonProperty("path") final JsonPointer path,
+    public static ReplaceOperation withOwnedValue(
+        @JsonProperty("path") final JsonPointer path,
         @JsonProperty("value") final JsonNode value)
     {
-        super("replace", path, value);
+        return new ReplaceOperation(path, value, false);
     }
 
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
+    {
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
     {
         /*
          * FIXME cannot quite be replaced by a remove + add because of arrays.
@@ -62,19 +91,17 @@ public final class ReplaceOperation
          * If remove is done first, the array is empty and add rightly complains
          * that there is no such index in the array.
          */
-        if (path.path(node).isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchPath"));
-        final JsonNode replacement = value.deepCopy();
-        if (path.isEmpty())
-            return replacement;
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parent = path.parent().get(ret);
-        final String rawToken = Iterables.getLast(path).getToken().getRaw();
-        if (parent.isObject())
-            ((ObjectNode) parent).replace(rawToken, replacement);
+        if (context.get(path).isMissingNode())
+            throw context.failure(PatchFailureCode.NO_SUCH_PATH, path);
+        final JsonNode replacement = context.duplicate(value);
+        final PreparedPointer target = preparedPath();
+        if (target.parent == null) {
+            context.setRoot(replacement);
+            return;
+        }
+        if (context.get(target.parent).isObject())
+            context.putMember(target.parent, target.raw, replacement);
         else
-            ((ArrayNode) parent).set(Integer.parseInt(rawToken), replacement);
-        return ret;
+            context.setElement(target.parent, target.index, replacement);
     }
 }
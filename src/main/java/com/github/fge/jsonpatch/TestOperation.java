@@ -44,24 +44,52 @@ public final class TestOperation
     private static final JsonNumEquals EQUIVALENCE
         = JsonNumEquals.getInstance();
 
+    public TestOperation(final JsonPointer path, final JsonNode value)
+    {
+        super("test", path, value);
+    }
+
+    private TestOperation(final JsonPointer path, final JsonNode value,
+        final boolean copy)
+    {
+        super("test", path, value, copy);
+    }
+
+    /**
+     * Build a new {@code test} operation, taking ownership of the value
+     *
+     * <p>Unlike the constructor, this method does not copy the value: the
+     * caller hands it over to the operation and must not modify it, nor
+     * any of its descendants, afterwards. This is what patches read from
+     * JSON use, since nothing else refers to the values just parsed.</p>
+     *
+     * @param path the path of the value to test
+     * @param value the value; it must not be modified afterwards
+     * @return a new operation
+     */
     @JsonCreator
-    public TestOperation(@JsonProperty("path") final JsonPointer path,
+    public static TestOperation withOwnedValue(
+        @JsonProperty("path") final JsonPointer path,
         @JsonProperty("value") final JsonNode value)
     {
-        super("test", path, value);
+        return new TestOperation(path, value, false);
     }
 
     @Override
     public JsonNode apply(final JsonNode node)
         throws JsonPatchException
     {
-        final JsonNode tested = path.path(node);
+        return applyToCopy(node);
+    }
+
+    @Override
+    void applyInPlace(final PatchContext context)
+        throws JsonPatchException
+    {
+        final JsonNode tested = context.get(path);
         if (tested.isMissingNode())
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.noSuchPath"));
+            throw context.failure(PatchFailureCode.NO_SUCH_PATH, path);
         if (!EQUIVALENCE.equivalent(tested, value))
-            throw new JsonPatchException(BUNDLE.getMessage(
-                "jsonPatch.valueTestFailure"));
-        return node.deepCopy();
+            throw context.failure(PatchFailureCode.VALUE_TEST_FAILURE, path);
     }
 }
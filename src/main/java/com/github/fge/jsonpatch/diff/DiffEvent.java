@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.PatchListener;
+
+/**
+ * Event sent to a {@link PatchListener} once a diff is computed
+ *
+ * @since 1.14
+ */
+public final class DiffEvent
+{
+    private final JsonNode source;
+    private final JsonNode target;
+    private final JsonPatch patch;
+    private final long nanos;
+
+    DiffEvent(final JsonNode source, final JsonNode target,
+        final JsonPatch patch, final long nanos)
+    {
+        this.source = source;
+        this.target = target;
+        this.patch = patch;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Return the source value of the diff
+     *
+     * @return the source value
+     */
+    public JsonNode getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Return the target value of the diff
+     *
+     * @return the target value
+     */
+    public JsonNode getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Return the computed patch
+     *
+     * @return the patch
+     */
+    public JsonPatch getPatch()
+    {
+        return patch;
+    }
+
+    /**
+     * Return the number of operations of the computed patch
+     *
+     * @return the number of operations
+     */
+    public int getOperationCount()
+    {
+        return patch.getOperations().size();
+    }
+
+    /**
+     * Return the time it took to compute the diff
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "diff (" + getOperationCount() + " operations): " + nanos
+            + " ns";
+    }
+}
@@ -29,6 +29,7 @@ import com.github.fge.jackson.NodeType;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.jsonpatch.PatchListener;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 
@@ -94,6 +95,33 @@ public final class JsonDiff
         return processor.getPatch();
     }
 
+    /**
+     * Generate a JSON patch for transforming the source node into the target
+     * node, and report the computation to a listener
+     *
+     * <p>Once the patch is computed, the listener receives a {@link
+     * DiffEvent} with the time the computation took. The returned patch
+     * itself has no listener.</p>
+     *
+     * @param source the node to be patched
+     * @param target the expected result after applying the patch
+     * @param listener the listener
+     * @return the patch as a {@link JsonPatch}
+     * @see PatchListener#diffComputed(DiffEvent)
+     *
+     * @since 1.14
+     */
+    public static JsonPatch asJsonPatch(final JsonNode source,
+        final JsonNode target, final PatchListener listener)
+    {
+        BUNDLE.checkNotNull(listener, "common.nullArgument");
+        final long start = System.nanoTime();
+        final JsonPatch ret = asJsonPatch(source, target);
+        listener.diffComputed(new DiffEvent(source, target, ret,
+            System.nanoTime() - start));
+        return ret;
+    }
+
     /**
      * Generate a JSON patch for transforming the source node into the target
      * node
@@ -103,4 +103,39 @@ public abstract class JsonMergePatch
     @Override
     public abstract JsonNode apply(final JsonNode input)
         throws JsonPatchException;
+
+    /**
+     * Apply the patch directly to a JSON value owned by the caller
+     *
+     * <p>No copy of the input is made: if it is a JSON Object, its members
+     * are modified directly. Since applying a JSON Merge Patch never fails,
+     * the input is either fully patched or not modified at all.</p>
+     *
+     * @param input the value to patch
+     * @return the patched value; always use it instead of the argument
+     * @throws JsonPatchException never thrown; only for consistency with
+     * {@link JsonPatch}
+     * @throws NullPointerException value is null
+     */
+    @Override
+    public abstract JsonNode applyInPlace(final JsonNode input)
+        throws JsonPatchException;
+
+    /**
+     * Apply the patch to a given JSON value, sharing unmodified members
+     *
+     * <p>The input is not modified. Only JSON Objects which the patch
+     * modifies are copied, and only shallowly; all other values are shared
+     * between the input and the result, which means that neither should be
+     * modified afterwards.</p>
+     *
+     * @param input the value to patch
+     * @return the patched value
+     * @throws JsonPatchException never thrown; only for consistency with
+     * {@link JsonPatch}
+     * @throws NullPointerException value is null
+     */
+    @Override
+    public abstract JsonNode applyShared(final JsonNode input)
+        throws JsonPatchException;
 }
@@ -51,6 +51,26 @@ final class NonObjectMergePatch
         return node;
     }
 
+    @Override
+    public JsonNode applyInPlace(final JsonNode input)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(input, "jsonPatch.nullValue");
+        /*
+         * The caller will own the result, so we must not hand out our own
+         * value
+         */
+        return node.deepCopy();
+    }
+
+    @Override
+    public JsonNode applyShared(final JsonNode input)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(input, "jsonPatch.nullValue");
+        return node;
+    }
+
     @Override
     public void serialize(final JsonGenerator jgen,
         final SerializerProvider provider)
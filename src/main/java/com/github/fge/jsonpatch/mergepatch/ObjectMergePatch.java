@@ -59,7 +59,15 @@ final class ObjectMergePatch
         /*
          * If the input is an object, we make a deep copy of it
          */
-        final ObjectNode ret = input.isObject() ? (ObjectNode) input.deepCopy()
+        return applyInPlace(input.isObject() ? input.deepCopy() : input);
+    }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode input)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(input, "jsonPatch.nullValue");
+        final ObjectNode ret = input.isObject() ? (ObjectNode) input
             : JacksonUtils.nodeFactory().objectNode();
 
         /*
@@ -84,7 +92,35 @@ final class ObjectMergePatch
              */
             final JsonNode jsonNode = ret.get(key);
             value = jsonNode != null ? jsonNode : NullNode.getInstance();
-            ret.replace(key, entry.getValue().apply(value));
+            ret.replace(key, entry.getValue().applyInPlace(value));
+        }
+
+        ret.remove(removedMembers);
+
+        return ret;
+    }
+
+    @Override
+    public JsonNode applyShared(final JsonNode input)
+        throws JsonPatchException
+    {
+        BUNDLE.checkNotNull(input, "jsonPatch.nullValue");
+        final ObjectNode ret = JacksonUtils.nodeFactory().objectNode();
+
+        /*
+         * Only copy the members of the input object itself; member values are
+         * patched recursively, and shared when they are not modified.
+         */
+        if (input.isObject())
+            ret.setAll((ObjectNode) input);
+
+        JsonNode value;
+        for (final Map.Entry<String, JsonMergePatch> entry:
+            modifiedMembers.entrySet()) {
+            value = ret.path(entry.getKey());
+            if (value.isMissingNode())
+                value = NullNode.getInstance();
+            ret.replace(entry.getKey(), entry.getValue().applyShared(value));
         }
 
         ret.remove(removedMembers);
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class ArraySpliceTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void runsOfArrayOperationsYieldSameResultsAsSingleOperations()
+        throws JsonPatchException
+    {
+        final Random random = new Random(0L);
+        final ObjectNode node = arrayOfSize(1000);
+        final List<JsonPatchOperation> operations
+            = new ArrayList<JsonPatchOperation>();
+        int size = 1000;
+
+        for (int i = 0; i < 2000; i++) {
+            final int choice = random.nextInt(5);
+            if (choice == 0)
+                operations.add(new AddOperation(JsonPointer.of("a", "-"),
+                    FACTORY.numberNode(-i)));
+            else if (choice < 3 || size == 0)
+                operations.add(new AddOperation(
+                    JsonPointer.of("a", random.nextInt(size + 1)),
+                    FACTORY.numberNode(-i)));
+            else
+                operations.add(new RemoveOperation(
+                    JsonPointer.of("a", random.nextInt(size))));
+            size += choice < 3 || size == 0 ? 1 : -1;
+        }
+
+        JsonNode expected = node;
+        for (final JsonPatchOperation operation: operations)
+            expected = operation.apply(expected);
+
+        final JsonPatch patch = new JsonPatch(operations);
+        final AppliedPatch applied = patch.applyWithInverse(node);
+
+        assertEquals(patch.apply(node), expected);
+        assertEquals(patch.applyShared(node), expected);
+        assertEquals(applied.getNode(), expected);
+        assertEquals(applied.getInverse().apply(expected), node);
+        assertEquals(patch.applyInPlace(node.deepCopy()), expected);
+    }
+
+    @Test
+    public void failedRunOfArrayOperationsInPlaceIsUndone()
+    {
+        final List<JsonPatchOperation> operations
+            = new ArrayList<JsonPatchOperation>();
+
+        for (int i = 0; i < 100; i++)
+            operations.add(new RemoveOperation(JsonPointer.of("a", i)));
+        operations.add(new AddOperation(JsonPointer.of("a", "01"),
+            FACTORY.numberNode(0)));
+        operations.add(new RemoveOperation(JsonPointer.of("a", "01")));
+
+        final JsonPatch patch = new JsonPatch(operations);
+        final ObjectNode orig = arrayOfSize(1000);
+        final ObjectNode node = orig.deepCopy();
+
+        try {
+            patch.applyInPlace(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("jsonPatch.noSuchPath"));
+        }
+
+        assertEquals(node, orig);
+    }
+
+    private static ObjectNode arrayOfSize(final int size)
+    {
+        final ArrayNode array = FACTORY.arrayNode();
+        for (int i = 0; i < size; i++)
+            array.add(i);
+
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.set("a", array);
+        return ret;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class FailFastTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    @Test
+    public void failFastPatchChecksIndependentTestsFirst()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":1,\"b\":2}");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"remove\",\"path\":\"/c\"},"
+            + "{\"op\":\"test\",\"path\":\"/a\",\"value\":2}"
+            + "]"));
+
+        try {
+            patch.apply(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("jsonPatch.noSuchPath"));
+        }
+
+        try {
+            patch.failFast().apply(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("jsonPatch.valueTestFailure"));
+        }
+    }
+
+    @Test
+    public void failFastPatchDoesNotCheckDependentTestsFirst()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":1,\"b\":[1]}");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"replace\",\"path\":\"/a\",\"value\":2},"
+            + "{\"op\":\"test\",\"path\":\"/a\",\"value\":2},"
+            + "{\"op\":\"add\",\"path\":\"/b/0\",\"value\":0},"
+            + "{\"op\":\"test\",\"path\":\"/b/1\",\"value\":1}"
+            + "]")).failFast();
+
+        assertEquals(patch.apply(node),
+            JsonLoader.fromString("{\"a\":2,\"b\":[0,1]}"));
+    }
+
+    @Test
+    public void failFastPatchDoesNotHoistTestsAboveSignedIndexChanges()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":[\"v\",\"w\"]}");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"add\",\"path\":\"/a/+0\",\"value\":\"y\"},"
+            + "{\"op\":\"test\",\"path\":\"/a/+1\",\"value\":\"v\"}"
+            + "]")).failFast();
+
+        assertEquals(patch.apply(node),
+            JsonLoader.fromString("{\"a\":[\"y\",\"v\",\"w\"]}"));
+    }
+}
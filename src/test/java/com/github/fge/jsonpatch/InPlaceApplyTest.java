@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class InPlaceApplyTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    @Test
+    public void failedMoveInPlaceLeavesValueUntouched()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":[1,2],\"b\":1}");
+        final JsonNode orig = node.deepCopy();
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"move\",\"from\":\"/a/0\",\"path\":\"/c/d\"}]"));
+
+        try {
+            patch.applyInPlace(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(
+                "jsonPatch.noSuchParent"));
+        }
+
+        assertEquals(node, orig);
+    }
+
+    @Test
+    public void movedValuesAreNotCopied()
+        throws IOException, JsonPatchException
+    {
+        final String orig = "{\"a\":{\"b\":{\"c\":[1,2]}},\"d\":{}}";
+        final JsonNode node = JsonLoader.fromString(orig);
+        final JsonNode moved = node.get("a").get("b");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"move\",\"from\":\"/a/b\",\"path\":\"/d/b\"},"
+            + "{\"op\":\"add\",\"path\":\"/d/b/c/-\",\"value\":3}"
+            + "]"));
+        final JsonNode expected = JsonLoader.fromString(
+            "{\"a\":{},\"d\":{\"b\":{\"c\":[1,2,3]}}}");
+
+        final JsonNode shared = patch.applyShared(node);
+        assertEquals(shared, expected);
+        assertEquals(node.toString(), orig);
+
+        final JsonNode patched = patch.applyInPlace(node);
+        assertEquals(patched, expected);
+        assertSame(patched.get("d").get("b"), moved);
+    }
+
+    @Test
+    public void failedPatchInPlaceIsUndone()
+        throws IOException
+    {
+        final String orig = "{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":2},\"e\":3}";
+        final JsonNode node = JsonLoader.fromString(orig);
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"remove\",\"path\":\"/a\"},"
+            + "{\"op\":\"remove\",\"path\":\"/b/0\"},"
+            + "{\"op\":\"add\",\"path\":\"/b/1\",\"value\":\"x\"},"
+            + "{\"op\":\"replace\",\"path\":\"/c/d\",\"value\":5},"
+            + "{\"op\":\"move\",\"from\":\"/e\",\"path\":\"/c/e\"},"
+            + "{\"op\":\"copy\",\"from\":\"/c\",\"path\":\"/a\"},"
+            + "{\"op\":\"replace\",\"path\":\"\",\"value\":[]},"
+            + "{\"op\":\"test\",\"path\":\"/a\",\"value\":1}"
+            + "]"));
+
+        try {
+            patch.applyInPlace(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("jsonPatch.noSuchPath"));
+        }
+
+        assertEquals(node.toString(), orig);
+    }
+}
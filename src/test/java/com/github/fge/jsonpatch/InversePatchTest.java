@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class InversePatchTest
+{
+    @Test
+    public void inverseIsNotAffectedByChangesToMovedValues()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":{\"x\":1}}");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/b\"},"
+            + "{\"op\":\"add\",\"path\":\"/b/y\",\"value\":2}"
+            + "]"));
+
+        final AppliedPatch applied = patch.applyWithInverse(node);
+
+        assertEquals(applied.getNode(),
+            JsonLoader.fromString("{\"b\":{\"x\":1,\"y\":2}}"));
+        assertEquals(applied.getInverse().apply(applied.getNode()), node);
+    }
+
+    @Test
+    public void inversePatchUndoesElementaryChanges()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":{\"b\":1},\"c\":[1,2]}");
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"move\",\"from\":\"/a/b\",\"path\":\"/c/0\"},"
+            + "{\"op\":\"test\",\"path\":\"/c/0\",\"value\":1},"
+            + "{\"op\":\"replace\",\"path\":\"/c/2\",\"value\":3},"
+            + "{\"op\":\"add\",\"path\":\"/d\",\"value\":null}"
+            + "]"));
+        final JsonNode inverse = JsonLoader.fromString("["
+            + "{\"op\":\"remove\",\"path\":\"/d\"},"
+            + "{\"op\":\"replace\",\"path\":\"/c/2\",\"value\":2},"
+            + "{\"op\":\"remove\",\"path\":\"/c/0\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/b\",\"value\":1}"
+            + "]");
+
+        final AppliedPatch applied = patch.applyWithInverse(node);
+
+        assertEquals(applied.getNode(), JsonLoader.fromString(
+            "{\"a\":{},\"c\":[1,1,3],\"d\":null}"));
+        assertEquals(JacksonUtils.newMapper().valueToTree(
+            applied.getInverse()), inverse);
+        assertEquals(applied.getInverse().apply(applied.getNode()), node);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.*;
+
+public final class JsonPatchCacheTest
+{
+    private static final byte[] PATCH1 = bytes(
+        "[{\"op\":\"add\",\"path\":\"/a\",\"value\":1}]");
+    private static final byte[] PATCH2 = bytes(
+        "[{\"op\":\"remove\",\"path\":\"/a\"}]");
+    private static final byte[] PATCH3 = bytes(
+        "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]");
+
+    @Test
+    public void samePatchIsReturnedForSameBytes()
+        throws IOException
+    {
+        final JsonPatchCache cache = JsonPatchCache.withMaxEntries(10);
+        final byte[] input = PATCH1.clone();
+
+        final JsonPatch patch = cache.get(input);
+        input[0] = ' ';
+
+        assertSame(cache.get(PATCH1.clone()), patch);
+        assertEquals(patch, JsonPatch.fromJson(PATCH1));
+        assertEquals(cache.getHitCount(), 1L);
+        assertEquals(cache.getMissCount(), 1L);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getByteCount(), (long) PATCH1.length);
+    }
+
+    @Test
+    public void leastRecentlyUsedPatchIsEvictedFirst()
+        throws IOException
+    {
+        final JsonPatchCache cache = JsonPatchCache.withMaxEntries(2);
+
+        final JsonPatch patch1 = cache.get(PATCH1);
+        final JsonPatch patch2 = cache.get(PATCH2);
+        cache.get(PATCH1);
+        cache.get(PATCH3);
+
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getEvictionCount(), 1L);
+        assertSame(cache.get(PATCH1), patch1);
+        assertNotSame(cache.get(PATCH2), patch2);
+        assertEquals(cache.getHitCount(), 2L);
+        assertEquals(cache.getMissCount(), 4L);
+    }
+
+    @Test
+    public void patchesAreEvictedWhenTooManyBytesAreCached()
+        throws IOException
+    {
+        final JsonPatchCache cache
+            = JsonPatchCache.withMaxBytes(PATCH1.length + PATCH2.length);
+
+        cache.get(PATCH1);
+        cache.get(PATCH2);
+        assertEquals(cache.size(), 2);
+
+        cache.get(PATCH3);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getEvictionCount(), 2L);
+        assertEquals(cache.getByteCount(), (long) PATCH3.length);
+
+        final JsonPatchCache small = JsonPatchCache.withMaxBytes(1L);
+        small.get(PATCH1);
+        assertEquals(small.size(), 0);
+    }
+
+    @Test
+    public void invalidPatchesAreNotCached()
+    {
+        final JsonPatchCache cache = JsonPatchCache.withMaxEntries(10);
+
+        for (int i = 0; i < 2; i++)
+            try {
+                cache.get(bytes("{}"));
+                fail("No exception thrown!!");
+            } catch (IOException ignored) {
+            }
+
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getMissCount(), 2L);
+    }
+
+    private static byte[] bytes(final String s)
+    {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -19,6 +19,9 @@
 
 package com.github.fge.jsonpatch;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.fge.jackson.JacksonUtils;
@@ -31,6 +34,8 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -66,24 +71,26 @@ public abstract class JsonPatchOperationTest
         final List<Object[]> list = Lists.newArrayList();
 
         for (final JsonNode node: errors)
-            list.add(new Object[]{
-                node.get("op"),
-                node.get("node"),
-                BUNDLE.getMessage(node.get("message").textValue())
-            });
+            for (final ApplyMode mode: ApplyMode.values())
+                list.add(new Object[]{
+                    mode,
+                    node.get("op"),
+                    node.get("node"),
+                    BUNDLE.getMessage(node.get("message").textValue())
+                });
 
         return list.iterator();
     }
 
     @Test(dataProvider = "getErrors")
-    public final void errorsAreCorrectlyReported(final JsonNode patch,
-        final JsonNode node, final String message)
+    public final void errorsAreCorrectlyReported(final ApplyMode mode,
+        final JsonNode patch, final JsonNode node, final String message)
         throws IOException
     {
         final JsonPatchOperation op = reader.readValue(patch);
 
         try {
-            op.apply(node);
+            mode.apply(op, node);
             fail("No exception thrown!!");
         } catch (JsonPatchException e) {
             assertEquals(e.getMessage(), message);
@@ -96,22 +103,24 @@ public abstract class JsonPatchOperationTest
         final List<Object[]> list = Lists.newArrayList();
 
         for (final JsonNode node: ops)
-            list.add(new Object[]{
-                node.get("op"),
-                node.get("node"),
-                node.get("expected")
-            });
+            for (final ApplyMode mode: ApplyMode.values())
+                list.add(new Object[]{
+                    mode,
+                    node.get("op"),
+                    node.get("node"),
+                    node.get("expected")
+                });
 
         return list.iterator();
     }
 
     @Test(dataProvider = "getOps")
-    public final void operationsYieldExpectedResults(final JsonNode patch,
-        final JsonNode node, final JsonNode expected)
+    public final void operationsYieldExpectedResults(final ApplyMode mode,
+        final JsonNode patch, final JsonNode node, final JsonNode expected)
         throws IOException, JsonPatchException
     {
         final JsonPatchOperation op = reader.readValue(patch);
-        final JsonNode actual = op.apply(node);
+        final JsonNode actual = mode.apply(op, node);
 
         assertTrue(EQUIVALENCE.equivalent(actual, expected),
             "patched node differs from expectations: expected " + expected
@@ -120,5 +129,55 @@ public abstract class JsonPatchOperationTest
             assertNotSame(node, actual,
                 "operation didn't make a copy of the input node");
     }
-}
 
+    /*
+     * All the ways to apply an operation; each of them must yield the same
+     * result
+     */
+    private enum ApplyMode
+    {
+        PLAIN {
+            @Override
+            JsonNode apply(final JsonPatchOperation op, final JsonNode node)
+                throws JsonPatchException
+            {
+                return op.apply(node);
+            }
+        },
+        PREPARED {
+            @Override
+            JsonNode apply(final JsonPatchOperation op, final JsonNode node)
+                throws JsonPatchException
+            {
+                op.prepare();
+                return op.apply(node);
+            }
+        },
+        STREAMED {
+            @Override
+            JsonNode apply(final JsonPatchOperation op, final JsonNode node)
+                throws IOException, JsonPatchException
+            {
+                final JsonPatch patch
+                    = new JsonPatch(Collections.singletonList(op));
+                final JsonFactory factory = new JsonFactory();
+                final StringWriter writer = new StringWriter();
+
+                try (
+                    final JsonParser parser
+                        = factory.createParser(node.toString());
+                    final JsonGenerator generator
+                        = factory.createGenerator(writer)
+                ) {
+                    patch.apply(parser, generator);
+                }
+
+                return JsonLoader.fromString(writer.toString());
+            }
+        };
+
+        abstract JsonNode apply(final JsonPatchOperation op,
+            final JsonNode node)
+            throws IOException, JsonPatchException;
+    }
+}
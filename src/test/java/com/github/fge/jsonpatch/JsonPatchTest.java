@@ -19,17 +19,28 @@
 
 package com.github.fge.jsonpatch;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.collect.ImmutableList;
-import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
@@ -56,7 +67,7 @@ public final class JsonPatchTest
         throws IOException
     {
         try {
-            JsonPatch.fromJson(null);
+            JsonPatch.fromJson((JsonNode) null);
             fail("No exception thrown!!");
         } catch (NullPointerException e) {
             assertEquals(e.getMessage(), BUNDLE.getMessage(
@@ -79,6 +90,86 @@ public final class JsonPatchTest
         }
     }
 
+    @Test
+    public void patchesWithEqualOperationsAreEqual()
+        throws IOException
+    {
+        final String json
+            = "[{\"op\":\"test\",\"path\":\"/x\",\"value\":1},"
+            + "{\"op\":\"add\",\"path\":\"/a\",\"value\":[1]},"
+            + "{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/b\"},"
+            + "{\"op\":\"remove\",\"path\":\"/b\"}]";
+        final JsonPatch patch = JsonPatch.fromJson(json);
+        final JsonPatch other = JsonPatch.fromJson(json);
+
+        assertEquals(patch, other);
+        assertEquals(patch.hashCode(), other.hashCode());
+        assertEquals(patch.compile(), other);
+        assertNotEquals(patch.failFast(), other);
+        assertNotEquals(patch,
+            JsonPatch.fromJson(json.replace("[1]", "[2]")));
+        assertNotEquals(patch,
+            JsonPatch.fromJson(json.replace("\"/a\",\"path",
+                "\"/c\",\"path")));
+        assertNotEquals(new RemoveOperation(JsonPointer.of("a")),
+            new CopyOperation(JsonPointer.of("a"), JsonPointer.of("a")));
+    }
+
+    @Test
+    public void writtenPatchesAreSerializedPatches()
+        throws IOException
+    {
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/a\\\"b/~0~1\","
+            + "\"value\":{\"x\":[1.5,\"\\u00e9\",{},[]],\"y\":null}},"
+            + "{\"op\":\"copy\",\"from\":\"/\\u00e9\",\"path\":\"/-\"},"
+            + "{\"op\":\"move\",\"from\":\"/c\",\"path\":\"/d/0\"},"
+            + "{\"op\":\"remove\",\"path\":\"\"},"
+            + "{\"op\":\"replace\",\"path\":\"/e\",\"value\":1e300},"
+            + "{\"op\":\"test\",\"path\":\"/f\",\"value\":true}]");
+        final String expected = new ObjectMapper().writeValueAsString(patch);
+
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            patch.writeTo(out);
+            assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                expected);
+        }
+
+        final StringWriter writer = new StringWriter();
+        try (
+            final JsonGenerator generator
+                = new JsonFactory().createGenerator(writer)
+        ) {
+            patch.writeTo(generator);
+        }
+        assertEquals(writer.toString(), expected);
+        assertEquals(JsonPatch.fromJson(expected), patch);
+    }
+
+    @Test
+    public void cannotWriteToNull()
+        throws IOException
+    {
+        final JsonPatch patch = JsonPatch.fromJson("[]");
+
+        try {
+            patch.writeTo((JsonGenerator) null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(
+                "common.nullArgument"));
+        }
+
+        try {
+            patch.writeTo((OutputStream) null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(
+                "common.nullArgument"));
+        }
+    }
+
     @Test
     public void operationsAreCalledInOrder()
         throws JsonPatchException
@@ -86,18 +177,41 @@ public final class JsonPatchTest
         final JsonNode node1 = FACTORY.textNode("hello");
         final JsonNode node2 = FACTORY.textNode("world");
 
-        when(op1.apply(node1)).thenReturn(node2);
+        final List<JsonNode> seen = new ArrayList<JsonNode>();
+
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                final PatchContext context = invocation.getArgument(0);
+                seen.add(context.getRoot());
+                context.setRoot(node2);
+                return null;
+            }
+        }).when(op1).applyInPlace(any(PatchContext.class));
+
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation)
+            {
+                final PatchContext context = invocation.getArgument(0);
+                seen.add(context.getRoot());
+                return null;
+            }
+        }).when(op2).applyInPlace(any(PatchContext.class));
 
         final JsonPatch patch = new JsonPatch(ImmutableList.of(op1, op2));
 
-        final ArgumentCaptor<JsonNode> captor
-            = ArgumentCaptor.forClass(JsonNode.class);
-
-        patch.apply(node1);
-        verify(op1, only()).apply(same(node1));
-        verify(op2, only()).apply(captor.capture());
+        final JsonNode ret = patch.apply(node1);
+        verify(op1, only()).applyInPlace(any(PatchContext.class));
+        verify(op2, only()).applyInPlace(any(PatchContext.class));
 
-        assertSame(captor.getValue(), node2);
+        assertEquals(seen.size(), 2);
+        assertSame(seen.get(0), node1);
+        assertSame(seen.get(1), node2);
+        assertSame(ret, node2);
     }
 
     @Test
@@ -105,8 +219,8 @@ public final class JsonPatchTest
         throws JsonPatchException
     {
         final String message = "foo";
-        when(op1.apply(any(JsonNode.class)))
-            .thenThrow(new JsonPatchException(message));
+        doThrow(new JsonPatchException(message)).when(op1)
+            .applyInPlace(any(PatchContext.class));
 
         final JsonPatch patch = new JsonPatch(ImmutableList.of(op1, op2));
 
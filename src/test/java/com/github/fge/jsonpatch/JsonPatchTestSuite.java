@@ -19,6 +19,9 @@
 
 package com.github.fge.jsonpatch;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.JsonLoader;
 import com.google.common.collect.Lists;
@@ -26,6 +29,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Iterator;
 import java.util.List;
 
@@ -60,18 +64,24 @@ public final class JsonPatchTestSuite
             if (expected == null)
                 expected = source;
             valid = !element.has("error");
-            list.add(new Object[]{source, patch, expected, valid});
+            for (final ApplyMode mode: ApplyMode.values())
+                list.add(new Object[]{mode, source, patch, expected, valid});
         }
 
         return list.iterator();
     }
 
     @Test(dataProvider = "getTests")
-    public void testsFromTestSuitePass(final JsonNode source,
-        final JsonPatch patch, final JsonNode expected, final boolean valid)
+    public void testsFromTestSuitePass(final ApplyMode mode,
+        final JsonNode source, final JsonPatch patch, final JsonNode expected,
+        final boolean valid)
+        throws IOException
     {
+        final JsonNode orig = source.deepCopy();
+        final JsonNode input = source.deepCopy();
+
         try {
-            final JsonNode actual = patch.apply(source);
+            final JsonNode actual = mode.apply(patch, input);
             if (!valid)
                 fail("Test was expected to fail!!");
             // Have to do that... TestNG tries to be too smart with regards
@@ -80,6 +90,114 @@ public final class JsonPatchTestSuite
         } catch (JsonPatchException ignored) {
             if (valid)
                 fail("Test was expected to succeed!!");
+            assertEquals(input.toString(), orig.toString(),
+                "failed patch modified its input");
+            return;
+        }
+
+        if (!mode.inPlace)
+            assertTrue(input.equals(orig), "patch modified its input");
+    }
+
+    /*
+     * All the ways to apply a patch; each of them must yield the same result
+     */
+    private enum ApplyMode
+    {
+        PLAIN(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                return patch.apply(node);
+            }
+        },
+        COMPILED(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                final JsonPatch compiled = patch.compile();
+                compiled.apply(node);
+                return compiled.apply(node);
+            }
+        },
+        OPTIMIZED(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                return patch.optimize().apply(node);
+            }
+        },
+        SHARED(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                return patch.applyShared(node);
+            }
+        },
+        IN_PLACE(true) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                return patch.applyInPlace(node);
+            }
+        },
+        FAIL_FAST(true) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                return patch.failFast().applyInPlace(node);
+            }
+        },
+        WITH_INVERSE(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws JsonPatchException
+            {
+                final AppliedPatch applied = patch.applyWithInverse(node);
+                assertTrue(applied.getInverse().apply(applied.getNode())
+                    .equals(node), "inverse patch does not restore input");
+                return applied.getNode();
+            }
+        },
+        STREAMED(false) {
+            @Override
+            JsonNode apply(final JsonPatch patch, final JsonNode node)
+                throws IOException, JsonPatchException
+            {
+                final JsonFactory factory = new JsonFactory();
+                final StringWriter writer = new StringWriter();
+
+                try (
+                    final JsonParser parser
+                        = factory.createParser(node.toString());
+                    final JsonGenerator generator
+                        = factory.createGenerator(writer)
+                ) {
+                    patch.apply(parser, generator);
+                }
+
+                return JsonLoader.fromString(writer.toString());
+            }
+        };
+
+        /*
+         * Whether the patch is applied to the node itself; a failed patch
+         * must then leave the node untouched
+         */
+        private final boolean inPlace;
+
+        ApplyMode(final boolean inPlace)
+        {
+            this.inPlace = inPlace;
         }
+
+        abstract JsonNode apply(final JsonPatch patch, final JsonNode node)
+            throws IOException, JsonPatchException;
     }
 }
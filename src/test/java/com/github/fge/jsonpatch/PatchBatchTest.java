@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.testng.Assert.*;
+
+public final class PatchBatchTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final int SIZE = 1000;
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void initExecutor()
+    {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public void shutdownExecutor()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void nullArgumentsAreRejected()
+        throws IOException, InterruptedException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("[]"));
+        final List<JsonNode> nodes = Collections.singletonList(
+            (JsonNode) FACTORY.nullNode());
+
+        try {
+            PatchBatch.applyAll(null, nodes, executor);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+        try {
+            PatchBatch.applyAll(patch, null, executor);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+        try {
+            PatchBatch.applyAll(patch, nodes, null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+        try {
+            PatchBatch.applyAll(patch, Collections.<JsonNode>singletonList(
+                null), executor);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+    }
+
+    @Test
+    public void resultsAreInInputOrder()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"move\",\"from\":\"/id\",\"path\":\"/key\"}]"));
+        final List<JsonNode> nodes = new ArrayList<JsonNode>(SIZE);
+
+        for (int i = 0; i < SIZE; i++)
+            nodes.add(i % 7 == 0 ? FACTORY.objectNode()
+                : FACTORY.objectNode().put("id", i));
+
+        final List<PatchResult> results
+            = PatchBatch.applyAll(patch, nodes, executor);
+
+        assertEquals(results.size(), SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            final PatchResult result = results.get(i);
+            if (i % 7 == 0) {
+                assertFalse(result.isSuccess());
+                assertNull(result.getNode());
+                assertNotNull(result.getException());
+            } else {
+                assertTrue(result.isSuccess());
+                assertEquals(result.getNode(),
+                    FACTORY.objectNode().put("key", i));
+                assertEquals(nodes.get(i), FACTORY.objectNode().put("id", i));
+            }
+        }
+    }
+
+    @Test
+    public void mergePatchesAreSupported()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(
+            JsonLoader.fromString("{\"a\":null,\"b\":1}"));
+        final List<JsonNode> nodes = new ArrayList<JsonNode>(SIZE);
+
+        for (int i = 0; i < SIZE; i++)
+            nodes.add(FACTORY.objectNode().put("a", i));
+
+        final JsonNode expected = FACTORY.objectNode().put("b", 1);
+
+        for (final PatchResult result:
+            PatchBatch.applyAll(patch, nodes, executor))
+            assertEquals(result.get(), expected);
+    }
+
+    @Test
+    public void rejectedTasksAreRunByCaller()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"add\",\"path\":\"/-\",\"value\":0}]"));
+        final List<JsonNode> nodes = Collections.nCopies(SIZE,
+            (JsonNode) FACTORY.arrayNode());
+        final Executor rejecting = new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        final JsonNode expected = FACTORY.arrayNode().add(0);
+
+        for (final PatchResult result:
+            PatchBatch.applyAll(patch, nodes, rejecting))
+            assertEquals(result.get(), expected);
+        assertEquals(nodes.get(0), FACTORY.arrayNode());
+    }
+
+    @Test
+    public void emptyBatchYieldsEmptyResult()
+        throws IOException, InterruptedException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("[]"));
+
+        assertTrue(PatchBatch.applyAll(patch,
+            Collections.<JsonNode>emptyList(), executor).isEmpty());
+    }
+
+    @Test
+    public void linesArePatchedInInputOrder()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"replace\",\"path\":\"/n\",\"value\":0.5}]"));
+        final StringBuilder input = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < SIZE; i++) {
+            input.append("{\"id\":").append(i).append(",\"n\":")
+                .append(i % 3 == 0 ? "[]" : "true").append('}')
+                .append(i % 5 == 0 ? "\r\n" : i % 7 == 0 ? "\n \n" : "\n");
+            expected.append("{\"id\":").append(i).append(",\"n\":0.5}\n");
+        }
+
+        final Path path = Files.createTempFile("patch", ".ndjson");
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try {
+            Files.write(path,
+                input.toString().getBytes(StandardCharsets.UTF_8));
+            for (final long chunkSize: new long[] { 1L, 100L, 1L << 20 }) {
+                output.reset();
+                assertEquals(PatchBatch.applyToLines(patch, path, output,
+                    executor, chunkSize), SIZE);
+                assertEquals(new String(output.toByteArray(),
+                    StandardCharsets.UTF_8), expected.toString());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void numbersAreNotRewritten()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"remove\",\"path\":\"/a\"}]"));
+        final Path path = Files.createTempFile("patch", ".ndjson");
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try {
+            Files.write(path, "{\"a\":1,\"n\":1.5e40}\n"
+                .getBytes(StandardCharsets.UTF_8));
+            PatchBatch.applyToLines(patch, path, output, executor, 1L << 20);
+            assertEquals(new String(output.toByteArray(),
+                StandardCharsets.UTF_8), "{\"n\":1.5E+40}\n");
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void failedLineIsReported()
+        throws IOException, InterruptedException, JsonPatchException
+    {
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"remove\",\"path\":\"/a\"}]"));
+        final Path path = Files.createTempFile("patch", ".ndjson");
+
+        try {
+            Files.write(path, "{\"a\":1}\n{\"b\":2}\n{\"a\":3}\n"
+                .getBytes(StandardCharsets.UTF_8));
+            PatchBatch.applyToLines(patch, path, new ByteArrayOutputStream(),
+                executor, 1L);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertTrue(e.getMessage().contains("offset 8"), e.getMessage());
+            assertEquals(e.getCode(), PatchFailureCode.NO_SUCH_PATH);
+            assertEquals(e.getPointer(), JsonPointer.of("a"));
+            assertEquals(e.getOperationIndex(), 0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class PatchContextTest
+{
+    @Test
+    public void nearbyLocationsAreResolvedAfterChanges()
+        throws IOException, JsonPatchException
+    {
+        final String orig
+            = "{\"a\":{\"b\":{\"c\":{}}},\"d\":[{\"x\":1},{\"x\":2}]}";
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("["
+            + "{\"op\":\"add\",\"path\":\"/a/b/c/x\",\"value\":1},"
+            + "{\"op\":\"remove\",\"path\":\"/a/b\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/b\",\"value\":{\"c\":{}}},"
+            + "{\"op\":\"add\",\"path\":\"/a/b/c/y\",\"value\":2},"
+            + "{\"op\":\"add\",\"path\":\"/d/1/y\",\"value\":3},"
+            + "{\"op\":\"add\",\"path\":\"/d/0\",\"value\":{\"z\":0}},"
+            + "{\"op\":\"add\",\"path\":\"/d/1/w\",\"value\":4},"
+            + "{\"op\":\"test\",\"path\":\"/d/2\",\"value\":{\"x\":2,\"y\":3}}"
+            + "]"));
+        final JsonNode expected = JsonLoader.fromString("{\"a\":{\"b\":"
+            + "{\"c\":{\"y\":2}}},\"d\":[{\"z\":0},{\"x\":1,\"w\":4},"
+            + "{\"x\":2,\"y\":3}]}");
+        final JsonNode node = JsonLoader.fromString(orig);
+
+        assertEquals(patch.apply(node), expected);
+        assertEquals(patch.applyShared(node), expected);
+        assertEquals(node.toString(), orig);
+        assertEquals(patch.applyInPlace(node), expected);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.testng.Assert.*;
+
+public final class PatchFailureTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    @Test
+    public void tryApplyReturnsPatchedValue()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":1}");
+        final PatchResult result = JsonPatch.fromJson(
+            "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]")
+            .tryApply(node);
+
+        assertTrue(result.isSuccess());
+        assertEquals(result.getNode(), JsonLoader.fromString("{\"a\":2}"));
+        assertNull(result.getCode());
+        assertEquals(result.getOperationIndex(), -1);
+        assertNull(result.getPointer());
+        assertEquals(node, JsonLoader.fromString("{\"a\":1}"));
+    }
+
+    @Test
+    public void tryApplyReportsFailuresWithoutStackTraces()
+        throws IOException
+    {
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/b\",\"value\":1},"
+            + "{\"op\":\"test\",\"path\":\"/a\",\"value\":2}"
+            + "]");
+        final JsonNode node = JsonLoader.fromString("{\"a\":1}");
+
+        for (final JsonPatch tried: ImmutableList.of(patch, patch.failFast())) {
+            final PatchResult result = tried.tryApply(node);
+            assertFalse(result.isSuccess());
+            assertEquals(result.getCode(),
+                PatchFailureCode.VALUE_TEST_FAILURE);
+            assertEquals(result.getOperationIndex(), 1);
+            assertEquals(result.getPointer(), JsonPointer.of("a"));
+            assertEquals(result.getException().getStackTrace().length, 0);
+            assertEquals(result.getException().getMessage(),
+                BUNDLE.getMessage("jsonPatch.valueTestFailure"));
+        }
+    }
+
+    @Test
+    public void thrownFailuresHaveStackTracesAndDetails()
+        throws IOException
+    {
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/a/0\",\"value\":0},"
+            + "{\"op\":\"remove\",\"path\":\"/a/5\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/1\",\"value\":1}"
+            + "]");
+
+        try {
+            patch.apply(JsonLoader.fromString("{\"a\":[1,2]}"));
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getCode(), PatchFailureCode.NO_SUCH_PATH);
+            assertEquals(e.getOperationIndex(), 1);
+            assertEquals(e.getPointer(), JsonPointer.of("a", 5));
+            assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    @Test
+    public void failuresSurviveSerialization()
+        throws IOException, ClassNotFoundException
+    {
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/b\",\"value\":1},"
+            + "{\"op\":\"remove\",\"path\":\"/a/~1x~0\"}"
+            + "]");
+        final JsonPatchException exception
+            = patch.tryApply(JsonLoader.fromString("{\"a\":{}}"))
+            .getException();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (
+            final ObjectOutputStream objectOut = new ObjectOutputStream(out)
+        ) {
+            objectOut.writeObject(exception);
+        }
+
+        final JsonPatchException read;
+        try (
+            final ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(out.toByteArray()))
+        ) {
+            read = (JsonPatchException) in.readObject();
+        }
+
+        assertEquals(read.getCode(), PatchFailureCode.NO_SUCH_PATH);
+        assertEquals(read.getOperationIndex(), 1);
+        assertEquals(read.getPointer(), JsonPointer.of("a", "/x~"));
+        assertEquals(read.getMessage(), exception.getMessage());
+    }
+
+    @Test
+    public void failedMovesAndCopiesReportTheirSource()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString("{\"a\":1}");
+
+        for (final String op: ImmutableList.of("move", "copy")) {
+            final PatchResult result = JsonPatch.fromJson("[{\"op\":\"" + op
+                + "\",\"from\":\"/x\",\"path\":\"/b\"}]").tryApply(node);
+            assertEquals(result.getCode(), PatchFailureCode.NO_SUCH_PATH);
+            assertEquals(result.getOperationIndex(), 0);
+            assertEquals(result.getPointer(), JsonPointer.of("x"));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class PatchListenerTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void listenerReceivesOperationEventsThenPatchTotals()
+        throws IOException, JsonPatchException
+    {
+        final RecordingListener listener = new RecordingListener();
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/a/b\",\"value\":{\"x\":[1,2]}},"
+            + "{\"op\":\"remove\",\"path\":\"/c\"},"
+            + "{\"op\":\"test\",\"path\":\"/a/b/x/1\",\"value\":2}"
+            + "]").withListener(listener);
+
+        patch.apply(JsonLoader.fromString("{\"a\":{},\"c\":1}"));
+
+        assertEquals(listener.operations.size(), 3);
+        assertEquals(listener.patches.size(), 1);
+
+        final OperationEvent add = listener.operations.get(0);
+        assertEquals(add.getIndex(), 0);
+        assertEquals(add.getOp(), "add");
+        assertEquals(add.getPointerDepth(), 2);
+        assertEquals(add.getValueSize(), 4);
+        assertTrue(add.isSuccess());
+
+        final OperationEvent remove = listener.operations.get(1);
+        assertEquals(remove.getOp(), "remove");
+        assertEquals(remove.getPointerDepth(), 1);
+        assertEquals(remove.getValueSize(), -1);
+
+        final OperationEvent test = listener.operations.get(2);
+        assertEquals(test.getOperation(), patch.getOperations().get(2));
+        assertEquals(test.getPointerDepth(), 4);
+        assertEquals(test.getValueSize(), 1);
+
+        final PatchEvent event = listener.patches.get(0);
+        long operationNanos = 0L;
+        for (final OperationEvent operation: listener.operations)
+            operationNanos += operation.getNanos();
+        assertSame(event.getPatch(), patch);
+        assertTrue(event.isSuccess());
+        assertEquals(event.getOperationCount(), 3);
+        assertEquals(event.getOperationNanos(), operationNanos);
+        assertTrue(event.getNanos() >= operationNanos);
+    }
+
+    @Test
+    public void listenerReceivesFailures()
+        throws IOException
+    {
+        final RecordingListener listener = new RecordingListener();
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/a\",\"value\":1},"
+            + "{\"op\":\"remove\",\"path\":\"/b\"},"
+            + "{\"op\":\"add\",\"path\":\"/c\",\"value\":1}"
+            + "]").withListener(listener);
+        final JsonNode node = FACTORY.objectNode();
+
+        try {
+            patch.applyInPlace(node);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(listener.operations.size(), 2);
+            assertTrue(listener.operations.get(0).isSuccess());
+            assertSame(listener.operations.get(1).getFailure(), e);
+            assertEquals(listener.patches.size(), 1);
+            assertSame(listener.patches.get(0).getFailure(), e);
+            assertEquals(listener.patches.get(0).getOperationCount(), 2);
+        }
+
+        assertEquals(node, FACTORY.objectNode());
+    }
+
+    @Test
+    public void failedPreconditionsAreOnlyReportedInPatchTotals()
+        throws IOException
+    {
+        final RecordingListener listener = new RecordingListener();
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"test\",\"path\":\"/a\",\"value\":1},"
+            + "{\"op\":\"add\",\"path\":\"/b\",\"value\":1}"
+            + "]").withListener(listener).failFast();
+
+        try {
+            patch.applyShared(FACTORY.objectNode().put("a", 2));
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertTrue(listener.operations.isEmpty());
+            assertEquals(listener.patches.size(), 1);
+            assertSame(listener.patches.get(0).getFailure(), e);
+            assertEquals(listener.patches.get(0).getOperationCount(), 0);
+        }
+    }
+
+    @Test
+    public void listenerIsKeptByDerivedPatchesAndIgnoredByEquality()
+        throws IOException, JsonPatchException
+    {
+        final RecordingListener listener = new RecordingListener();
+        final JsonPatch patch = JsonPatch.fromJson("["
+            + "{\"op\":\"add\",\"path\":\"/a\",\"value\":1},"
+            + "{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}"
+            + "]");
+        final JsonPatch listened = patch.withListener(listener);
+
+        assertEquals(listened, patch);
+        listened.optimize().failFast().compile()
+            .apply(FACTORY.objectNode());
+        assertEquals(listener.operations.size(), 1);
+        assertEquals(listener.patches.size(), 1);
+
+        listened.withListener(null).apply(FACTORY.objectNode());
+        assertEquals(listener.patches.size(), 1);
+    }
+
+    private static final class RecordingListener
+        extends PatchListener
+    {
+        private final List<OperationEvent> operations
+            = new ArrayList<OperationEvent>();
+        private final List<PatchEvent> patches = new ArrayList<PatchEvent>();
+
+        @Override
+        public void operationApplied(final OperationEvent event)
+        {
+            operations.add(event);
+        }
+
+        @Override
+        public void patchApplied(final PatchEvent event)
+        {
+            patches.add(event);
+        }
+    }
+}
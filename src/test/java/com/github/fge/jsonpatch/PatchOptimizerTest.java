@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class PatchOptimizerTest
+{
+    private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
+
+    private final JsonNode testNode;
+
+    public PatchOptimizerTest()
+        throws IOException
+    {
+        testNode = JsonLoader.fromResource("/jsonpatch/optimize.json");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getTests()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (final JsonNode element: testNode)
+            list.add(new Object[]{
+                element.get("comment").textValue(), element.get("patch"),
+                element.get("optimized")
+            });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getTests")
+    public void patchesAreOptimizedAsExpected(final String comment,
+        final JsonNode patch, final JsonNode optimized)
+        throws IOException
+    {
+        final JsonPatch actual = JsonPatch.fromJson(patch).optimize();
+
+        assertEquals(MAPPER.valueToTree(actual), optimized, comment);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.Assert.*;
+
+public final class SharedApplyTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @Test
+    public void sharedApplyOnlyCopiesModifiedContainers()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":{\"b\":[1,2]},\"c\":{\"d\":{}}}");
+        final JsonNode orig = node.deepCopy();
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"add\",\"path\":\"/a/b/-\",\"value\":3},"
+            + "{\"op\":\"remove\",\"path\":\"/a/b/0\"}]"));
+
+        final JsonNode patched = patch.applyShared(node);
+
+        assertEquals(patched, JsonLoader.fromString(
+            "{\"a\":{\"b\":[2,3]},\"c\":{\"d\":{}}}"));
+        assertEquals(node, orig);
+        assertNotSame(patched, node);
+        assertNotSame(patched.get("a"), node.get("a"));
+        assertSame(patched.get("c"), node.get("c"));
+    }
+
+    @Test
+    public void sharedApplySharesCopiedValuesUntilModified()
+        throws IOException, JsonPatchException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"t\":{\"a\":{\"b\":1},\"c\":[]}}");
+        final JsonNode orig = node.deepCopy();
+        final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+            "[{\"op\":\"copy\",\"from\":\"/t\",\"path\":\"/x\"},"
+            + "{\"op\":\"copy\",\"from\":\"/t\",\"path\":\"/y\"},"
+            + "{\"op\":\"add\",\"path\":\"/y/c/-\",\"value\":2}]"));
+
+        final JsonNode patched = patch.applyShared(node);
+
+        assertEquals(patched, JsonLoader.fromString(
+            "{\"t\":{\"a\":{\"b\":1},\"c\":[]},"
+            + "\"x\":{\"a\":{\"b\":1},\"c\":[]},"
+            + "\"y\":{\"a\":{\"b\":1},\"c\":[2]}}"));
+        assertEquals(node, orig);
+        assertSame(patched.get("t"), node.get("t"));
+        assertSame(patched.get("x"), node.get("t"));
+        assertNotSame(patched.get("y"), node.get("t"));
+        assertSame(patched.get("y").get("a"), node.get("t").get("a"));
+
+        final JsonNode copied = patch.apply(node);
+        assertEquals(copied, patched);
+        assertNotSame(copied.get("x"), copied.get("t"));
+    }
+
+    @Test
+    public void ownedValuesAreNeverCopied()
+        throws JsonPatchException
+    {
+        final ObjectNode value = FACTORY.objectNode();
+        value.put("b", 1);
+        final JsonPointer path = JsonPointer.of("a");
+
+        final PathValueOperation owned = AddOperation.withOwnedValue(path,
+            value);
+        final PathValueOperation copied = new AddOperation(path, value);
+
+        assertSame(owned.viewValue(), value);
+        assertNotSame(owned.getValue(), value);
+        assertNotSame(copied.viewValue(), value);
+        assertSame(ReplaceOperation.withOwnedValue(path, value).viewValue(),
+            value);
+        assertSame(TestOperation.withOwnedValue(path, value).viewValue(),
+            value);
+
+        final JsonPatch patch
+            = new JsonPatch(ImmutableList.<JsonPatchOperation>of(owned));
+        final JsonNode node = FACTORY.objectNode();
+
+        assertSame(patch.applyShared(node).get("a"), value);
+        assertNotSame(patch.apply(node).get("a"), value);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.*;
+
+public final class StreamingApplyTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    @Test
+    public void streamingCopiesUnreferencedValuesAsIs()
+        throws IOException, JsonPatchException
+    {
+        final String patch = "[{\"op\":\"replace\",\"path\":\"/b/c/1\","
+            + "\"value\":3},{\"op\":\"add\",\"path\":\"/e\",\"value\":0.5}]";
+
+        assertEquals(stream("{\"a\":1.50,\"b\":{\"c\":[1,2],\"d\":[]},"
+            + "\"d\":\"x\"}", patch),
+            "{\"a\":1.50,\"b\":{\"c\":[1,3],\"d\":[]},\"d\":\"x\",\"e\":0.5}");
+    }
+
+    @Test
+    public void streamingAppendsToArraysWithoutReadingThem()
+        throws IOException, JsonPatchException
+    {
+        final String patch = "[{\"op\":\"add\",\"path\":\"/a/-\",\"value\":3},"
+            + "{\"op\":\"add\",\"path\":\"/a/-\",\"value\":[4]}]";
+
+        assertEquals(stream("{\"a\":[1,{\"b\":2}]}", patch),
+            "{\"a\":[1,{\"b\":2},3,[4]]}");
+    }
+
+    @Test
+    public void streamingWritesMembersReferredToTogetherAtOnce()
+        throws IOException, JsonPatchException
+    {
+        final String doc = "{\"a\":1,\"b\":2,\"c\":3}";
+
+        assertEquals(stream(doc,
+            "[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/d\"}]"),
+            "{\"b\":2,\"c\":3,\"d\":1}");
+        assertEquals(stream(doc,
+            "[{\"op\":\"copy\",\"from\":\"/c\",\"path\":\"/a\"}]"),
+            "{\"b\":2,\"a\":3,\"c\":3}");
+    }
+
+    @Test
+    public void streamingReportsFirstFailedOperation()
+        throws IOException
+    {
+        final String patch = "["
+            + "{\"op\":\"add\",\"path\":\"/z/x/y\",\"value\":1},"
+            + "{\"op\":\"remove\",\"path\":\"/a/x\"}]";
+
+        try {
+            stream("{\"a\":{},\"z\":{}}", patch);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("jsonPatch.noSuchParent"));
+        }
+    }
+
+    @Test
+    public void streamedFailuresReportOriginalPointersAndIndex()
+        throws IOException
+    {
+        final String input = "{\"a\":{\"b\":{\"c\":1}},\"z\":2}";
+        final String test = "[{\"op\":\"add\",\"path\":\"/z\",\"value\":3},"
+            + "{\"op\":\"test\",\"path\":\"/a/b/c\",\"value\":2}]";
+        final String move = "[{\"op\":\"move\",\"from\":\"/a/b/x\","
+            + "\"path\":\"/a/b/y\"}]";
+
+        try {
+            stream(input, test);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getCode(), PatchFailureCode.VALUE_TEST_FAILURE);
+            assertEquals(e.getPointer(), JsonPointer.of("a", "b", "c"));
+            assertEquals(e.getOperationIndex(), 1);
+        }
+
+        try {
+            stream(input, move);
+            fail("No exception thrown!!");
+        } catch (JsonPatchException e) {
+            assertEquals(e.getCode(), PatchFailureCode.NO_SUCH_PATH);
+            assertEquals(e.getPointer(), JsonPointer.of("a", "b", "x"));
+            assertEquals(e.getOperationIndex(), 0);
+        }
+    }
+
+    private static String stream(final String input, final String patch)
+        throws IOException, JsonPatchException
+    {
+        final JsonFactory factory = new JsonFactory();
+        final StringWriter writer = new StringWriter();
+
+        try (
+            final JsonParser parser = factory.createParser(input);
+            final JsonGenerator generator = factory.createGenerator(writer)
+        ) {
+            JsonPatch.fromJson(JsonLoader.fromString(patch))
+                .apply(parser, generator);
+        }
+
+        return writer.toString();
+    }
+}
@@ -24,6 +24,7 @@ import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.PatchListener;
 import com.google.common.collect.Lists;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -72,6 +73,34 @@ public final class JsonDiffTest
         ).isTrue();
     }
 
+    @Test
+    public void listenerReceivesComputedDiffs()
+        throws IOException
+    {
+        final JsonNode first = JsonLoader.fromString("{\"a\":1}");
+        final JsonNode second = JsonLoader.fromString("{\"b\":[1]}");
+        final List<DiffEvent> events = Lists.newArrayList();
+        final PatchListener listener = new PatchListener()
+        {
+            @Override
+            public void diffComputed(final DiffEvent event)
+            {
+                events.add(event);
+            }
+        };
+
+        final JsonPatch patch = JsonDiff.asJsonPatch(first, second, listener);
+
+        assertThat(events).hasSize(1);
+        final DiffEvent event = events.get(0);
+        assertThat(event.getSource()).isSameAs(first);
+        assertThat(event.getTarget()).isSameAs(second);
+        assertThat(event.getPatch()).isSameAs(patch);
+        assertThat(event.getOperationCount())
+            .isEqualTo(patch.getOperations().size());
+        assertThat(event.getNanos()).isGreaterThanOrEqualTo(0L);
+    }
+
     @DataProvider
     public Iterator<Object[]> getLiteralPatches()
     {
@@ -89,4 +89,15 @@ public final class NonObjectMergePatchTest
 
         assertTrue(EQUIVALENCE.equivalent(input, patched));
     }
+
+    @Test(dataProvider = "getData")
+    public void patchingInPlaceWorksAsExpected(final JsonNode input,
+        final JsonNode victim)
+        throws JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final JsonNode patched = patch.applyInPlace(victim.deepCopy());
+
+        assertTrue(EQUIVALENCE.equivalent(input, patched));
+    }
 }
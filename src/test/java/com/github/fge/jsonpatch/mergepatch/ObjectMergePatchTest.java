@@ -36,6 +36,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -91,4 +92,31 @@ public final class ObjectMergePatchTest
 
         assertTrue(EQUIVALENCE.equivalent(result, patched));
     }
+
+    @Test(dataProvider = "getData")
+    public void patchingSharedWorksAsExpected(final JsonNode input,
+        final JsonNode victim, final JsonNode result)
+        throws JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final JsonNode orig = victim.deepCopy();
+        final JsonNode patched = patch.applyShared(victim);
+
+        assertTrue(EQUIVALENCE.equivalent(result, patched));
+        assertEquals(victim, orig);
+    }
+
+    @Test(dataProvider = "getData")
+    public void patchingInPlaceWorksAsExpected(final JsonNode input,
+        final JsonNode victim, final JsonNode result)
+        throws JsonPatchException
+    {
+        final JsonMergePatch patch = JsonMergePatch.fromJson(input);
+        final JsonNode copy = victim.deepCopy();
+        final JsonNode patched = patch.applyInPlace(copy);
+
+        assertTrue(EQUIVALENCE.equivalent(result, patched));
+        if (copy.isObject())
+            assertSame(patched, copy);
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonpatch.DualPathOperation;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.jsonpatch.JsonPatchOperation;
+import com.github.fge.jsonpatch.PathValueOperation;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonPatchDeserializationTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPatchMessages.class);
+
+    private final JsonNode node;
+    private final ObjectMapper mapper;
+
+    public JsonPatchDeserializationTest()
+        throws IOException
+    {
+        node = JsonLoader.fromResource("/jsonpatch/deserialization.json");
+        mapper = JacksonUtils.newMapper();
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getValidInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (final JsonNode n: node.get("valid"))
+            list.add(new Object[] { n.get("input"), n.get("expected") });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getValidInputs")
+    public void patchesAreReadFromAllSources(final JsonNode input,
+        final JsonNode expected)
+        throws IOException
+    {
+        for (final JsonPatch patch: readAll(input))
+            assertEquals(mapper.valueToTree(patch), expected);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInvalidInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        List<Object> args;
+
+        for (final JsonNode n: node.get("invalid")) {
+            args = Lists.newArrayList();
+            for (final JsonNode arg: n.get("args"))
+                args.add(arg.textValue());
+            list.add(new Object[] { n.get("input"),
+                BUNDLE.printf(n.get("message").textValue(), args.toArray())
+            });
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInvalidInputs")
+    public void invalidPatchesAreRejected(final JsonNode input,
+        final String message)
+        throws IOException
+    {
+        final String json = input.toString();
+
+        try {
+            JsonPatch.fromJson(json);
+            fail("No exception thrown!!");
+        } catch (JsonMappingException e) {
+            assertEquals(e.getOriginalMessage(), message);
+        }
+
+        try {
+            JsonPatch.fromJson(input);
+            fail("No exception thrown!!");
+        } catch (JsonMappingException e) {
+            assertEquals(e.getOriginalMessage(), message);
+        }
+    }
+
+    @Test
+    public void trailingContentIsRejected()
+        throws IOException
+    {
+        final String json = "[{\"op\":\"remove\",\"path\":\"/a\"}] []";
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        final String message = BUNDLE.getMessage("jsonPatch.trailingTokens");
+
+        try {
+            JsonPatch.fromJson(json);
+            fail("No exception thrown!!");
+        } catch (JsonMappingException e) {
+            assertEquals(e.getOriginalMessage(), message);
+        }
+
+        try {
+            JsonPatch.fromJson(bytes);
+            fail("No exception thrown!!");
+        } catch (JsonMappingException e) {
+            assertEquals(e.getOriginalMessage(), message);
+        }
+
+        try {
+            JsonPatch.fromJson(new ByteArrayInputStream(bytes));
+            fail("No exception thrown!!");
+        } catch (JsonMappingException e) {
+            assertEquals(e.getOriginalMessage(), message);
+        }
+    }
+
+    @Test
+    public void parserIsLeftOnEndOfPatch()
+        throws IOException
+    {
+        final String json = "{\"patch\":[{\"op\":\"remove\",\"path\":\"/a\"}],"
+            + "\"x\":1}";
+
+        try (
+            final JsonParser parser = new JsonFactory().createParser(json)
+        ) {
+            parser.nextToken();
+            parser.nextToken();
+            parser.nextToken();
+            assertEquals(JsonPatch.fromJson(parser).getOperations().size(), 1);
+            assertEquals(parser.nextFieldName(), "x");
+        }
+    }
+
+    @Test
+    public void pointersAndMemberNamesAreShared()
+        throws IOException
+    {
+        final String json = "[{\"op\":\"add\",\"path\":\"/status/x\","
+            + "\"value\":{\"state\":1}},"
+            + "{\"op\":\"move\",\"from\":\"/status/x\",\"path\":\"/y\"}]";
+        final List<JsonPatchOperation> ops1
+            = JsonPatch.fromJson(json).getOperations();
+        final List<JsonPatchOperation> ops2 = JsonPatch.fromJson(
+            json.getBytes(StandardCharsets.UTF_8)).getOperations();
+        final PathValueOperation add1 = (PathValueOperation) ops1.get(0);
+        final PathValueOperation add2 = (PathValueOperation) ops2.get(0);
+
+        assertSame(add1.getPath(), add2.getPath());
+        assertSame(((DualPathOperation) ops1.get(1)).getFrom(),
+            add1.getPath());
+        assertSame(add1.viewValue().fieldNames().next(),
+            add2.viewValue().fieldNames().next());
+    }
+
+    private List<JsonPatch> readAll(final JsonNode input)
+        throws IOException
+    {
+        final String json = input.toString();
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        final List<JsonPatch> ret = Lists.newArrayList();
+
+        ret.add(JsonPatch.fromJson(input));
+        ret.add(JsonPatch.fromJson(json));
+        ret.add(JsonPatch.fromJson(bytes));
+        ret.add(JsonPatch.fromJson(new ByteArrayInputStream(bytes)));
+        ret.add(mapper.readValue(json, JsonPatch.class));
+
+        try (
+            final JsonParser parser = new JsonFactory().createParser(json)
+        ) {
+            ret.add(JsonPatch.fromJson(parser));
+        }
+
+        return ret;
+    }
+}